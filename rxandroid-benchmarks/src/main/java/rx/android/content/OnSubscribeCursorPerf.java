@@ -0,0 +1,236 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.database.Cursor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * Iterates an in-memory {@link Cursor} with {@link OnSubscribeCursor}, so the numbers show the
+ * cost per row of the operator rather than that of a database. {@code decode} adds decoding each
+ * row through a {@link RowMapper}, {@code decodeChunks} decodes the rows in chunks instead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OnSubscribeCursorPerf {
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        @Param({ "1", "1000", "100000" })
+        public int rows;
+
+        ArrayCursor cursor;
+        Observable<Cursor> observable;
+        Observable<Long> decoded;
+        Observable<List<Long>> chunks;
+
+        @Setup
+        public void setup() {
+            final long[] values = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                values[i] = i;
+            }
+            cursor = new ArrayCursor(values);
+            observable = Observable.create(new OnSubscribeCursor<Cursor>(cursor, OnSubscribeCursor.POSITIONS));
+            decoded = Observable.create(new OnSubscribeCursor<Long>(cursor, VALUE));
+            chunks = ContentObservable.fromCursorChunks(cursor, VALUE);
+        }
+    }
+
+    @Benchmark
+    public long iterate(Input input) {
+        input.cursor.reopen();
+        final Sum sum = new Sum();
+        input.observable.subscribe(sum);
+        return sum.total;
+    }
+
+    @Benchmark
+    public long decode(Input input) {
+        input.cursor.reopen();
+        final DecodedSum sum = new DecodedSum();
+        input.decoded.subscribe(sum);
+        return sum.total;
+    }
+
+    @Benchmark
+    public long decodeChunks(Input input) {
+        input.cursor.reopen();
+        final ChunkSum sum = new ChunkSum();
+        input.chunks.subscribe(sum);
+        return sum.total;
+    }
+
+    private static final RowMapper<Long> VALUE = new RowMapper<Long>("value") {
+        @Override
+        public Long map(Cursor cursor, int[] columns) {
+            return cursor.getLong(columns[0]);
+        }
+    };
+
+    private static final class DecodedSum extends Subscriber<Long> {
+
+        long total;
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public void onError(Throwable e) {
+        }
+
+        @Override
+        public void onNext(Long value) {
+            total += value;
+        }
+    }
+
+    private static final class ChunkSum extends Subscriber<List<Long>> {
+
+        long total;
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public void onError(Throwable e) {
+        }
+
+        @Override
+        public void onNext(List<Long> chunk) {
+            for (int i = 0; i < chunk.size(); i++) {
+                total += chunk.get(i);
+            }
+        }
+    }
+
+    private static final class Sum extends Subscriber<Cursor> {
+
+        long total;
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public void onError(Throwable e) {
+        }
+
+        @Override
+        public void onNext(Cursor cursor) {
+            total += cursor.getLong(0);
+        }
+    }
+
+    /**
+     * A cursor over an array with the single column {@code value}, which can be reopened after it
+     * has been closed.
+     */
+    static final class ArrayCursor implements Cursor {
+
+        private final long[] values;
+        private int position = -1;
+        private boolean closed;
+
+        ArrayCursor(long[] values) {
+            this.values = values;
+        }
+
+        void reopen() {
+            position = -1;
+            closed = false;
+        }
+
+        @Override
+        public int getCount() {
+            return values.length;
+        }
+
+        @Override
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public boolean moveToPosition(int position) {
+            if (position < -1) {
+                position = -1;
+            } else if (position > values.length) {
+                position = values.length;
+            }
+            this.position = position;
+            return position >= 0 && position < values.length;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            return moveToPosition(position + 1);
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 1;
+        }
+
+        @Override
+        public int getColumnIndexOrThrow(String columnName) {
+            if (!"value".equals(columnName)) {
+                throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+            }
+            return 0;
+        }
+
+        @Override
+        public int getInt(int columnIndex) {
+            return (int) values[position];
+        }
+
+        @Override
+        public long getLong(int columnIndex) {
+            return values[position];
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            return String.valueOf(values[position]);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
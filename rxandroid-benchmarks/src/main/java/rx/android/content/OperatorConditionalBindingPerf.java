@@ -0,0 +1,88 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.os.TestLoopers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscriber;
+import rx.functions.Func1;
+
+/**
+ * Forwards items through {@link OperatorConditionalBinding} on the benchmark thread, which is
+ * made the main thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OperatorConditionalBindingPerf {
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        final Integer item = 1;
+        Subscriber<? super Integer> bound;
+        Subscriber<? super Integer> boundWithPredicate;
+        int received;
+
+        @Setup
+        public void setup() {
+            TestLoopers.resetMainLooper();
+            final Object target = new Object();
+            bound = new OperatorConditionalBinding<Integer, Object>(target).call(new Receiver());
+            boundWithPredicate = new OperatorConditionalBinding<Integer, Object>(target, new Func1<Object, Boolean>() {
+                @Override
+                public Boolean call(Object target) {
+                    return Boolean.TRUE;
+                }
+            }).call(new Receiver());
+        }
+
+        private final class Receiver extends Subscriber<Integer> {
+
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                received++;
+            }
+        }
+    }
+
+    @Benchmark
+    public int onNext(Input input) {
+        input.bound.onNext(input.item);
+        return input.received;
+    }
+
+    @Benchmark
+    public int onNextWithPredicate(Input input) {
+        input.boundWithPredicate.onNext(input.item);
+        return input.received;
+    }
+}
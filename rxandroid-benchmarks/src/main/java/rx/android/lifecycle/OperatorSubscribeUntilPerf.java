@@ -0,0 +1,86 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.lifecycle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscriber;
+import rx.subjects.PublishSubject;
+
+/**
+ * Measures binding a subscriber with {@link OperatorSubscribeUntil}, and forwarding items
+ * through a bound one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OperatorSubscribeUntilPerf {
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        final Integer item = 1;
+        PublishSubject<Object> lifecycle;
+        OperatorSubscribeUntil<Integer, Object> operator;
+        Subscriber<? super Integer> bound;
+        int received;
+
+        @Setup
+        public void setup() {
+            lifecycle = PublishSubject.create();
+            operator = new OperatorSubscribeUntil<Integer, Object>(lifecycle);
+            bound = operator.call(new Receiver());
+        }
+
+        final class Receiver extends Subscriber<Integer> {
+
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                received++;
+            }
+        }
+    }
+
+    @Benchmark
+    public int onNext(Input input) {
+        input.bound.onNext(input.item);
+        return input.received;
+    }
+
+    /**
+     * Binds a new subscriber and unsubscribes it again, which also subscribes to and
+     * unsubscribes from the lifecycle.
+     */
+    @Benchmark
+    public boolean bindAndUnsubscribe(Input input) {
+        final Subscriber<? super Integer> bound = input.operator.call(input.new Receiver());
+        bound.unsubscribe();
+        return bound.isUnsubscribed();
+    }
+}
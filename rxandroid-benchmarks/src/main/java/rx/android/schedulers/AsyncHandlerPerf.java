@@ -0,0 +1,141 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler.Worker;
+import rx.functions.Action0;
+
+/**
+ * Measures the time from scheduling an action on a {@link HandlerThread} until it has run while
+ * the thread keeps a view traversal pending, with the actions posted through a plain
+ * {@link Handler} and through an {@link AsyncHandler}.
+ * <p>
+ * The thread plays a view that keeps requesting layout, like the one in the sample app's
+ * scheduler latency activity: at every 16ms frame boundary a traversal spends
+ * {@code layoutMillis} on layout, and the sync barrier for the next traversal is posted right
+ * after it. Synchronous messages therefore only run between a traversal and the next barrier.
+ */
+public class AsyncHandlerPerf {
+
+    private static final long FRAME_INTERVAL_MILLIS = 16;
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        @Param({ "false", "true" })
+        public boolean async;
+
+        @Param({ "0", "8" })
+        public long layoutMillis;
+
+        HandlerThread thread;
+        Worker worker;
+
+        @Setup
+        public void setup() {
+            thread = new HandlerThread("AsyncHandlerPerf");
+            thread.start();
+            final Looper looper = thread.getLooper();
+            final Traversals traversals = new Traversals(looper, layoutMillis);
+            new Handler(looper).post(new Runnable() {
+                @Override
+                public void run() {
+                    traversals.schedule();
+                }
+            });
+            final Handler handler = async ? new AsyncHandler(looper) : new Handler(looper);
+            worker = new HandlerThreadScheduler(handler).createWorker();
+        }
+
+        @TearDown
+        public void tearDown() {
+            worker.unsubscribe();
+            thread.quit();
+        }
+    }
+
+    /**
+     * Schedules a single action and waits for it, which measures the time from scheduling an
+     * action until it has run.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip(Input input) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        input.worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    /**
+     * Stands in for the view system of a window whose layout is always requested again: the
+     * traversal is an asynchronous message, like the frame callbacks of the Choreographer, and a
+     * sync barrier holds back synchronous messages while it is pending.
+     */
+    private static final class Traversals implements Runnable {
+
+        private final Handler handler;
+        private final MessageQueue queue;
+        private final long layoutMillis;
+
+        // only touched on the looper's thread
+        private int barrier;
+
+        Traversals(Looper looper, long layoutMillis) {
+            this.handler = new AsyncHandler(looper);
+            this.queue = looper.getQueue();
+            this.layoutMillis = layoutMillis;
+        }
+
+        void schedule() {
+            barrier = queue.postSyncBarrier();
+            final long now = SystemClock.uptimeMillis();
+            handler.postAtTime(this, now - now % FRAME_INTERVAL_MILLIS + FRAME_INTERVAL_MILLIS);
+        }
+
+        @Override
+        public void run() {
+            queue.removeSyncBarrier(barrier);
+            final long laidOutAt = SystemClock.uptimeMillis() + layoutMillis;
+            while (SystemClock.uptimeMillis() < laidOutAt) {
+                // measuring and laying out views
+            }
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler.Worker;
+import rx.functions.Action0;
+
+/**
+ * Schedules actions from the benchmark thread onto a {@link HandlerThread} and waits for them
+ * to run there.
+ */
+public class HandlerThreadSchedulerPerf {
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        @Param({ "false", "true" })
+        public boolean batched;
+
+        HandlerThread thread;
+        Worker worker;
+
+        @Setup
+        public void setup() {
+            thread = new HandlerThread("HandlerThreadSchedulerPerf");
+            thread.start();
+            worker = new HandlerThreadScheduler(new Handler(thread.getLooper()), batched).createWorker();
+        }
+
+        @TearDown
+        public void tearDown() {
+            worker.unsubscribe();
+            thread.quit();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BurstInput extends Input {
+
+        @Param({ "1", "100", "10000" })
+        public int size;
+    }
+
+    /**
+     * Schedules a burst of actions and waits for the last one.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void burst(BurstInput input) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(input.size);
+        final Action0 action = new Action0() {
+            @Override
+            public void call() {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < input.size; i++) {
+            input.worker.schedule(action);
+        }
+        done.await();
+    }
+
+    /**
+     * Schedules a single action and waits for it, which measures the time from scheduling an
+     * action until it has run.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip(Input input) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        input.worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
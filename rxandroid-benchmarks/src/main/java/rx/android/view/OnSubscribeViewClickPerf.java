@@ -0,0 +1,88 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.view;
+
+import android.os.TestLoopers;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Dispatches clicks to the subscribers of {@link OnSubscribeViewClick} through the listener the
+ * subscriptions of a view share.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OnSubscribeViewClickPerf {
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        @Param({ "1", "10" })
+        public int subscribers;
+
+        View view;
+        CompositeSubscription subscriptions;
+        int received;
+
+        @Setup
+        public void setup() {
+            TestLoopers.resetMainLooper();
+            view = new View();
+            subscriptions = new CompositeSubscription();
+            final Observable<OnClickEvent> clicks = Observable.create(new OnSubscribeViewClick(view, false));
+            for (int i = 0; i < subscribers; i++) {
+                subscriptions.add(clicks.subscribe(new Subscriber<OnClickEvent>() {
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                    }
+
+                    @Override
+                    public void onNext(OnClickEvent event) {
+                        received++;
+                    }
+                }));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            subscriptions.unsubscribe();
+        }
+    }
+
+    @Benchmark
+    public int performClick(Input input) {
+        input.view.performClick();
+        return input.received;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.database;
+
+/**
+ * Stand-in for the Android class on a plain JVM: a cursor whose rows are held in a
+ * {@link CursorWindow}.
+ */
+public abstract class AbstractWindowedCursor implements Cursor {
+
+    protected CursorWindow mWindow;
+
+    public CursorWindow getWindow() {
+        return mWindow;
+    }
+
+    public boolean hasWindow() {
+        return mWindow != null;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.database;
+
+import java.io.Closeable;
+
+/**
+ * Stand-in for the Android interface on a plain JVM, with the methods used to iterate a result
+ * set.
+ */
+public interface Cursor extends Closeable {
+
+    int getCount();
+
+    int getPosition();
+
+    boolean moveToPosition(int position);
+
+    boolean moveToNext();
+
+    int getColumnCount();
+
+    int getColumnIndexOrThrow(String columnName);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    String getString(int columnIndex);
+
+    void close();
+
+    boolean isClosed();
+}
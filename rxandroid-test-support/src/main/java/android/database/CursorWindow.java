@@ -0,0 +1,45 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.database;
+
+/**
+ * Stand-in for the Android class on a plain JVM, which only tracks the rows the window holds.
+ */
+public class CursorWindow {
+
+    private int startPosition;
+    private int numRows;
+
+    public int getStartPosition() {
+        return startPosition;
+    }
+
+    public void setStartPosition(int pos) {
+        startPosition = pos;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public boolean allocRow() {
+        numRows++;
+        return true;
+    }
+
+    public void clear() {
+        startPosition = 0;
+        numRows = 0;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/**
+ * Stand-in for the Android class on a plain JVM. Runnables are posted as messages through
+ * {@link #sendMessageAtTime(Message, long)}, as they are on Android, so subclasses overriding
+ * it see every message.
+ */
+public class Handler {
+
+    private final Looper looper;
+    private final MessageQueue queue;
+
+    public Handler() {
+        this(Looper.myLooper());
+    }
+
+    public Handler(Looper looper) {
+        if (looper == null) {
+            throw new RuntimeException("Can't create handler inside thread that has not called Looper.prepare()");
+        }
+        this.looper = looper;
+        this.queue = looper.queue;
+    }
+
+    public void handleMessage(Message msg) {
+    }
+
+    public void dispatchMessage(Message msg) {
+        if (msg.callback != null) {
+            msg.callback.run();
+        } else {
+            handleMessage(msg);
+        }
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return sendMessageDelayed(getPostMessage(r), 0);
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return sendMessageDelayed(getPostMessage(r), delayMillis);
+    }
+
+    public final boolean postAtTime(Runnable r, long uptimeMillis) {
+        return sendMessageAtTime(getPostMessage(r), uptimeMillis);
+    }
+
+    public final boolean postAtTime(Runnable r, Object token, long uptimeMillis) {
+        final Message msg = getPostMessage(r);
+        msg.obj = token;
+        return sendMessageAtTime(msg, uptimeMillis);
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        if (r != null) {
+            queue.removeMessages(this, r, null);
+        }
+    }
+
+    public final void removeCallbacks(Runnable r, Object token) {
+        if (r != null) {
+            queue.removeMessages(this, r, token);
+        }
+    }
+
+    /**
+     * Removes all messages whose token is the given one, or all messages if it is {@code null}.
+     */
+    public final void removeCallbacksAndMessages(Object token) {
+        queue.removeMessages(this, null, token);
+    }
+
+    public final boolean sendMessage(Message msg) {
+        return sendMessageDelayed(msg, 0);
+    }
+
+    public final boolean sendMessageDelayed(Message msg, long delayMillis) {
+        if (delayMillis < 0) {
+            delayMillis = 0;
+        }
+        return sendMessageAtTime(msg, SystemClock.uptimeMillis() + delayMillis);
+    }
+
+    public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+        msg.target = this;
+        return queue.enqueueMessage(msg, uptimeMillis);
+    }
+
+    private static Message getPostMessage(Runnable r) {
+        final Message msg = Message.obtain();
+        msg.callback = r;
+        return msg;
+    }
+}
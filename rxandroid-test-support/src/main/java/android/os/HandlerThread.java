@@ -0,0 +1,70 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/**
+ * Stand-in for the Android class on a plain JVM.
+ */
+public class HandlerThread extends Thread {
+
+    // guarded by this
+    private Looper looper;
+
+    public HandlerThread(String name) {
+        super(name);
+    }
+
+    @Override
+    public void run() {
+        Looper.prepare();
+        synchronized (this) {
+            looper = Looper.myLooper();
+            notifyAll();
+        }
+        Looper.loop();
+    }
+
+    /**
+     * @return the thread's {@link Looper}, waiting for it to be prepared if the thread has been
+     *         started, or {@code null} if it has not been
+     */
+    public Looper getLooper() {
+        if (!isAlive()) {
+            return null;
+        }
+        boolean interrupted = false;
+        synchronized (this) {
+            while (isAlive() && looper == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return looper;
+    }
+
+    public boolean quit() {
+        final Looper looper = getLooper();
+        if (looper == null) {
+            return false;
+        }
+        looper.quit();
+        return true;
+    }
+}
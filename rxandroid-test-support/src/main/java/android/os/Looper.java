@@ -0,0 +1,99 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/**
+ * Stand-in for the Android class on a plain JVM.
+ */
+public final class Looper {
+
+    private static final ThreadLocal<Looper> sThreadLocal = new ThreadLocal<Looper>();
+    private static Looper sMainLooper;
+
+    final MessageQueue queue = new MessageQueue();
+    private volatile Thread thread = Thread.currentThread();
+
+    private Looper() {
+    }
+
+    public static void prepare() {
+        if (sThreadLocal.get() != null) {
+            throw new RuntimeException("Only one Looper may be created per thread");
+        }
+        sThreadLocal.set(new Looper());
+    }
+
+    public static void prepareMainLooper() {
+        prepare();
+        synchronized (Looper.class) {
+            if (sMainLooper != null) {
+                throw new IllegalStateException("The main Looper has already been prepared.");
+            }
+            sMainLooper = myLooper();
+        }
+    }
+
+    /**
+     * Makes the current thread the main thread, with an empty main {@link Looper}. The main
+     * {@link Looper} is created once and reused, so handlers that hold on to it keep working.
+     */
+    static synchronized Looper resetMainLooper() {
+        if (sMainLooper == null) {
+            sMainLooper = new Looper();
+        }
+        sMainLooper.thread = Thread.currentThread();
+        sMainLooper.queue.reset();
+        sThreadLocal.set(sMainLooper);
+        return sMainLooper;
+    }
+
+    public static synchronized Looper getMainLooper() {
+        return sMainLooper;
+    }
+
+    public static Looper myLooper() {
+        return sThreadLocal.get();
+    }
+
+    public static MessageQueue myQueue() {
+        final Looper looper = myLooper();
+        return looper == null ? null : looper.queue;
+    }
+
+    /**
+     * Dispatches the messages of the current thread's queue until {@link #quit()} is called.
+     */
+    public static void loop() {
+        final Looper me = myLooper();
+        if (me == null) {
+            throw new RuntimeException("No Looper; Looper.prepare() wasn't called on this thread.");
+        }
+        Message msg;
+        while ((msg = me.queue.next()) != null) {
+            msg.target.dispatchMessage(msg);
+        }
+    }
+
+    public void quit() {
+        queue.quit();
+    }
+
+    public MessageQueue getQueue() {
+        return queue;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/**
+ * Stand-in for the Android class on a plain JVM. Messages are not pooled. A message without a
+ * target is a sync barrier, which keeps the queue from dispatching the synchronous messages
+ * behind it; {@code arg1} holds its token.
+ */
+public final class Message {
+
+    public int what;
+    public int arg1;
+    public Object obj;
+
+    Handler target;
+    Runnable callback;
+    long when;
+    Message next;
+    private boolean asynchronous;
+
+    public static Message obtain() {
+        return new Message();
+    }
+
+    public Handler getTarget() {
+        return target;
+    }
+
+    public Runnable getCallback() {
+        return callback;
+    }
+
+    public long getWhen() {
+        return when;
+    }
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    public void setAsynchronous(boolean async) {
+        asynchronous = async;
+    }
+}
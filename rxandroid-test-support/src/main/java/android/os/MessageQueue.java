@@ -0,0 +1,293 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Stand-in for the Android class on a plain JVM. Like the original, it keeps its messages in a
+ * list sorted by due time, in which messages with the same due time stay in the order they were
+ * sent, and calls its idle handlers once every time it runs out of due messages. While a sync
+ * barrier is at the head of the queue, only asynchronous messages are dispatched.
+ */
+public final class MessageQueue {
+
+    /**
+     * Callback for when the queue runs out of due messages.
+     */
+    public interface IdleHandler {
+        /**
+         * @return whether the idle handler should stay registered
+         */
+        boolean queueIdle();
+    }
+
+    // all live queues, which are woken up when virtual time advances
+    private static final Set<MessageQueue> queues =
+            Collections.newSetFromMap(new WeakHashMap<MessageQueue, Boolean>());
+
+    // guarded by this
+    private Message messages;
+    private final List<IdleHandler> idleHandlers = new ArrayList<IdleHandler>();
+    private boolean quitting;
+    private int nextBarrierToken;
+
+    // whether the idle handlers have been called since the last message was dispatched by
+    // TestLoopers; only touched on the looper's thread
+    boolean idle;
+
+    MessageQueue() {
+        synchronized (queues) {
+            queues.add(this);
+        }
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException("Can't add a null IdleHandler");
+        }
+        synchronized (this) {
+            idleHandlers.add(handler);
+        }
+    }
+
+    public void removeIdleHandler(IdleHandler handler) {
+        synchronized (this) {
+            idleHandlers.remove(handler);
+        }
+    }
+
+    /**
+     * Posts a sync barrier behind the messages that are due now, as the view system does while a
+     * traversal is pending. This is a hidden method on Android.
+     *
+     * @return the token to remove the barrier with
+     */
+    public synchronized int postSyncBarrier() {
+        final int token = nextBarrierToken++;
+        final Message barrier = Message.obtain();
+        barrier.arg1 = token;
+        insert(barrier, SystemClock.uptimeMillis());
+        return token;
+    }
+
+    /**
+     * Removes the sync barrier with the given token. This is a hidden method on Android.
+     *
+     * @throws IllegalStateException
+     *             if there is no such barrier
+     */
+    public synchronized void removeSyncBarrier(int token) {
+        Message prev = null;
+        Message msg = messages;
+        while (msg != null && (msg.target != null || msg.arg1 != token)) {
+            prev = msg;
+            msg = msg.next;
+        }
+        if (msg == null) {
+            throw new IllegalStateException("The specified message queue synchronization barrier token has not been"
+                    + " posted or has already been removed.");
+        }
+        if (prev == null) {
+            messages = msg.next;
+        } else {
+            prev.next = msg.next;
+        }
+        notifyAll();
+    }
+
+    static void wakeAll() {
+        final MessageQueue[] all;
+        synchronized (queues) {
+            all = queues.toArray(new MessageQueue[queues.size()]);
+        }
+        for (MessageQueue queue : all) {
+            synchronized (queue) {
+                queue.notifyAll();
+            }
+        }
+    }
+
+    synchronized boolean enqueueMessage(Message msg, long when) {
+        if (quitting) {
+            return false;
+        }
+        insert(msg, when);
+        notifyAll();
+        return true;
+    }
+
+    // called with the lock held
+    private void insert(Message msg, long when) {
+        msg.when = when;
+        if (messages == null || when < messages.when) {
+            msg.next = messages;
+            messages = msg;
+        } else {
+            Message prev = messages;
+            while (prev.next != null && prev.next.when <= when) {
+                prev = prev.next;
+            }
+            msg.next = prev.next;
+            prev.next = msg;
+        }
+    }
+
+    /**
+     * Removes the messages of the given handler with the given callback, or any callback if it is
+     * {@code null}, and the given token, or any token if it is {@code null}.
+     */
+    synchronized void removeMessages(Handler h, Runnable r, Object token) {
+        while (messages != null && matches(messages, h, r, token)) {
+            messages = messages.next;
+        }
+        if (messages != null) {
+            Message prev = messages;
+            while (prev.next != null) {
+                if (matches(prev.next, h, r, token)) {
+                    prev.next = prev.next.next;
+                } else {
+                    prev = prev.next;
+                }
+            }
+        }
+    }
+
+    private static boolean matches(Message msg, Handler h, Runnable r, Object token) {
+        return msg.target == h && (r == null || msg.callback == r) && (token == null || msg.obj == token);
+    }
+
+    synchronized void quit() {
+        quitting = true;
+        messages = null;
+        notifyAll();
+    }
+
+    /**
+     * Drops all messages and idle handlers, and takes messages again if the queue has quit.
+     */
+    synchronized void reset() {
+        quitting = false;
+        messages = null;
+        idleHandlers.clear();
+        idle = false;
+    }
+
+    /**
+     * @return the head message if it is due at the given time, or {@code null}
+     */
+    synchronized Message poll(long now) {
+        final Message prev = beforeNext();
+        final Message msg = prev == null ? messages : prev.next;
+        if (msg == null || msg.when > now) {
+            return null;
+        }
+        if (prev == null) {
+            messages = msg.next;
+        } else {
+            prev.next = msg.next;
+        }
+        msg.next = null;
+        return msg;
+    }
+
+    /**
+     * @return the due time of the next message to dispatch, or {@link Long#MAX_VALUE} if there is
+     *         none
+     */
+    synchronized long nextWhen() {
+        final Message prev = beforeNext();
+        final Message msg = prev == null ? messages : prev.next;
+        return msg == null ? Long.MAX_VALUE : msg.when;
+    }
+
+    /**
+     * @return the message before the next one to dispatch, which is the first asynchronous one if
+     *         a barrier is at the head, or {@code null} if the next one is the head
+     */
+    // called with the lock held
+    private Message beforeNext() {
+        if (messages == null || messages.target != null) {
+            return null;
+        }
+        Message prev = messages;
+        while (prev.next != null && !prev.next.isAsynchronous()) {
+            prev = prev.next;
+        }
+        return prev;
+    }
+
+    /**
+     * Calls the registered idle handlers, outside the lock as on Android, and removes the ones
+     * that ask for it.
+     *
+     * @return whether there were idle handlers to call
+     */
+    boolean runIdleHandlers() {
+        final IdleHandler[] pending;
+        synchronized (this) {
+            pending = idleHandlers.toArray(new IdleHandler[idleHandlers.size()]);
+        }
+        for (IdleHandler idleHandler : pending) {
+            if (!idleHandler.queueIdle()) {
+                removeIdleHandler(idleHandler);
+            }
+        }
+        return pending.length > 0;
+    }
+
+    /**
+     * Blocks until a message is due, calling the idle handlers once if none is due right away.
+     *
+     * @return the due message, or {@code null} once the queue quits
+     */
+    Message next() {
+        boolean idle = false;
+        for (;;) {
+            synchronized (this) {
+                final long now = SystemClock.uptimeMillis();
+                final Message msg = poll(now);
+                if (msg != null || quitting) {
+                    return msg;
+                }
+                if (idle || idleHandlers.isEmpty()) {
+                    await(now);
+                    continue;
+                }
+            }
+            runIdleHandlers();
+            idle = true;
+        }
+    }
+
+    // called with the lock held
+    private void await(long now) {
+        try {
+            final long next = nextWhen();
+            if (next == Long.MAX_VALUE || SystemClock.isVirtual()) {
+                // virtual time wakes all queues when it advances, removing a barrier wakes this one
+                wait();
+            } else {
+                wait(Math.max(1, next - now));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            quit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/**
+ * Stand-in for the Android class on a plain JVM.
+ * <p>
+ * In real time, which is the default, the time is read from {@link System#nanoTime()}. In
+ * virtual time, selected with {@link TestLoopers#useVirtualTime()}, it only moves when it is
+ * advanced through {@link TestLoopers} or {@link #sleep(long)}.
+ */
+public final class SystemClock {
+
+    // guarded by SystemClock.class
+    private static boolean virtual;
+    private static long virtualUptimeMillis;
+
+    private SystemClock() {
+        throw new AssertionError("No instances");
+    }
+
+    public static long uptimeMillis() {
+        synchronized (SystemClock.class) {
+            if (virtual) {
+                return virtualUptimeMillis;
+            }
+        }
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * Waits for the given time, or advances virtual time by it without waiting.
+     */
+    public static void sleep(long ms) {
+        final long wakeUpAt;
+        synchronized (SystemClock.class) {
+            wakeUpAt = virtual ? virtualUptimeMillis + ms : -1;
+        }
+        if (wakeUpAt >= 0) {
+            advanceTo(wakeUpAt);
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void setVirtual(boolean virtual) {
+        synchronized (SystemClock.class) {
+            if (virtual && !SystemClock.virtual) {
+                // continue from the current time, so time never goes backwards
+                virtualUptimeMillis = System.nanoTime() / 1000000;
+            }
+            SystemClock.virtual = virtual;
+        }
+        MessageQueue.wakeAll();
+    }
+
+    static synchronized boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Advances virtual time to the given uptime and wakes the queues waiting for it. Time never
+     * goes backwards.
+     */
+    static void advanceTo(long uptimeMillis) {
+        synchronized (SystemClock.class) {
+            if (!virtual) {
+                throw new IllegalStateException("Time can only be advanced in virtual time");
+            }
+            virtualUptimeMillis = Math.max(virtualUptimeMillis, uptimeMillis);
+        }
+        MessageQueue.wakeAll();
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls the stand-ins of this module from tests. This class is not part of the Android API.
+ * <p>
+ * A {@link Looper} is either run by {@link Looper#loop()} on its own thread, as on Android, or
+ * driven from its thread with {@link #runToIdle(Looper)} and {@link #advanceBy(Looper, long, TimeUnit)}.
+ * Both work in real and in virtual time; loopers waiting in {@link Looper#loop()} wake up when
+ * virtual time advances.
+ */
+public final class TestLoopers {
+
+    private TestLoopers() {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * Stops {@link SystemClock} until it is advanced explicitly. Virtual time continues from the
+     * current time.
+     */
+    public static void useVirtualTime() {
+        SystemClock.setVirtual(true);
+    }
+
+    /**
+     * Makes {@link SystemClock} follow {@link System#nanoTime()} again.
+     */
+    public static void useRealTime() {
+        SystemClock.setVirtual(false);
+    }
+
+    /**
+     * @return whether {@link SystemClock} is in virtual time
+     */
+    public static boolean isVirtualTime() {
+        return SystemClock.isVirtual();
+    }
+
+    /**
+     * Makes the current thread the main thread, with an empty main {@link Looper}. Call this
+     * before every test; the main {@link Looper} is created once and reused, so schedulers
+     * holding a {@link Handler} of it, such as the ones in {@code AndroidSchedulers}, keep
+     * working from one test to the next.
+     *
+     * @return the main {@link Looper}
+     */
+    public static Looper resetMainLooper() {
+        return Looper.resetMainLooper();
+    }
+
+    /**
+     * Dispatches the messages of the given {@link Looper} that are due, and calls its idle
+     * handlers whenever it runs out of them, until neither dispatches any more messages. As on
+     * Android, idle handlers are not called again until another message has been dispatched.
+     *
+     * @return the number of messages dispatched
+     * @throws IllegalStateException
+     *             if not called from the thread of the {@link Looper}
+     */
+    public static int runToIdle(Looper looper) {
+        if (looper.getThread() != Thread.currentThread()) {
+            throw new IllegalStateException("Looper can only be run from its own thread");
+        }
+        final MessageQueue queue = looper.queue;
+        int count = 0;
+        for (;;) {
+            Message msg;
+            while ((msg = queue.poll(SystemClock.uptimeMillis())) != null) {
+                queue.idle = false;
+                msg.target.dispatchMessage(msg);
+                count++;
+            }
+            if (queue.idle) {
+                return count;
+            }
+            queue.idle = true;
+            // idle handlers may send further messages, which are run before the queue is idle
+            if (!queue.runIdleHandlers() || queue.nextWhen() > SystemClock.uptimeMillis()) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Advances virtual time by the given time, stopping at the due time of every message of the
+     * given {@link Looper} on the way to dispatch it, as if it had been waiting in
+     * {@link Looper#loop()}.
+     *
+     * @return the number of messages dispatched
+     * @throws IllegalStateException
+     *             if not in virtual time, or not called from the thread of the {@link Looper}
+     */
+    public static int advanceBy(Looper looper, long time, TimeUnit unit) {
+        if (!SystemClock.isVirtual()) {
+            throw new IllegalStateException("Time can only be advanced in virtual time");
+        }
+        final long target = SystemClock.uptimeMillis() + unit.toMillis(time);
+        int count = runToIdle(looper);
+        long next;
+        while ((next = looper.queue.nextWhen()) <= target) {
+            SystemClock.advanceTo(next);
+            count += runToIdle(looper);
+        }
+        SystemClock.advanceTo(target);
+        return count + runToIdle(looper);
+    }
+}
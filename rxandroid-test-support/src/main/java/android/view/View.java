@@ -0,0 +1,41 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+/**
+ * Stand-in for the Android class on a plain JVM, which only supports click listeners.
+ */
+public class View {
+
+    /**
+     * Callback for clicks on a view.
+     */
+    public interface OnClickListener {
+        void onClick(View v);
+    }
+
+    private OnClickListener onClickListener;
+
+    public void setOnClickListener(OnClickListener l) {
+        onClickListener = l;
+    }
+
+    public boolean performClick() {
+        if (onClickListener == null) {
+            return false;
+        }
+        onClickListener.onClick(this);
+        return true;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestLoopersTest {
+
+    private Looper looper;
+    private Handler handler;
+    private final List<String> log = new ArrayList<String>();
+
+    @Before
+    public void setUp() {
+        TestLoopers.useVirtualTime();
+        looper = TestLoopers.resetMainLooper();
+        handler = new Handler(looper);
+    }
+
+    @After
+    public void tearDown() {
+        TestLoopers.useRealTime();
+    }
+
+    @Test
+    public void shouldDispatchInDueOrderKeepingSendOrderForSameDueTime() {
+        handler.postDelayed(record("c"), 20);
+        handler.post(record("a"));
+        handler.postDelayed(record("b"), 10);
+        handler.post(record("a2"));
+
+        assertEquals(2, TestLoopers.runToIdle(looper));
+        assertEquals(Arrays.asList("a", "a2"), log);
+
+        assertEquals(2, TestLoopers.advanceBy(looper, 20, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList("a", "a2", "b", "c"), log);
+    }
+
+    @Test
+    public void shouldStopAtDueTimeOfEveryMessageWhenAdvancing() {
+        final long start = SystemClock.uptimeMillis();
+        final List<Long> times = new ArrayList<Long>();
+        final Runnable tick = new Runnable() {
+            @Override
+            public void run() {
+                times.add(SystemClock.uptimeMillis() - start);
+                handler.postDelayed(this, 16);
+            }
+        };
+        handler.postDelayed(tick, 16);
+
+        TestLoopers.advanceBy(looper, 50, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList(16L, 32L, 48L), times);
+        assertEquals(start + 50, SystemClock.uptimeMillis());
+    }
+
+    @Test
+    public void shouldNotDispatchRemovedCallbacks() {
+        final Runnable removed = record("removed");
+        handler.post(removed);
+        handler.post(record("kept"));
+        handler.postDelayed(removed, 10);
+        handler.removeCallbacks(removed);
+
+        TestLoopers.advanceBy(looper, 10, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("kept"), log);
+    }
+
+    @Test
+    public void shouldHoldBackSynchronousMessagesBehindSyncBarrier() {
+        handler.post(record("before"));
+        final int barrier = looper.getQueue().postSyncBarrier();
+        handler.post(record("sync"));
+        final Message async = Message.obtain();
+        async.callback = record("async");
+        async.setAsynchronous(true);
+        handler.sendMessage(async);
+
+        assertEquals(2, TestLoopers.runToIdle(looper));
+        assertEquals(Arrays.asList("before", "async"), log);
+
+        looper.getQueue().removeSyncBarrier(barrier);
+        assertEquals(1, TestLoopers.runToIdle(looper));
+        assertEquals(Arrays.asList("before", "async", "sync"), log);
+    }
+
+        @Test
+    public void shouldCallIdleHandlersWhenOutOfDueMessages() {
+        handler.post(record("message"));
+        handler.postDelayed(record("delayed"), 10);
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                log.add("idle");
+                return log.size() < 3;
+            }
+        });
+
+        TestLoopers.runToIdle(looper);
+        assertEquals(Arrays.asList("message", "idle"), log);
+
+        TestLoopers.advanceBy(looper, 10, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("message", "idle", "delayed", "idle"), log);
+
+        // the idle handler removed itself
+        handler.post(record("last"));
+        TestLoopers.runToIdle(looper);
+        assertEquals(Arrays.asList("message", "idle", "delayed", "idle", "last"), log);
+    }
+
+    @Test
+    public void shouldReuseMainLooperAcrossResets() {
+        handler.post(record("dropped"));
+
+        assertSame(looper, TestLoopers.resetMainLooper());
+        assertSame(looper, Looper.getMainLooper());
+        assertSame(looper, Looper.myLooper());
+        assertEquals(0, TestLoopers.runToIdle(looper));
+        assertTrue(log.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldOnlyRunLooperFromItsThread() throws InterruptedException {
+        final HandlerThread thread = new HandlerThread("test");
+        thread.start();
+        try {
+            TestLoopers.runToIdle(thread.getLooper());
+        } finally {
+            thread.quit();
+        }
+    }
+
+    @Test
+    public void shouldWakeLoopingThreadWhenVirtualTimeAdvances() throws InterruptedException {
+        final HandlerThread thread = new HandlerThread("test");
+        thread.start();
+        final CountDownLatch done = new CountDownLatch(1);
+        new Handler(thread.getLooper()).postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, 1000);
+
+        assertEquals(1, done.getCount());
+        SystemClock.sleep(1000);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        thread.quit();
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                log.add(name);
+            }
+        };
+    }
+}
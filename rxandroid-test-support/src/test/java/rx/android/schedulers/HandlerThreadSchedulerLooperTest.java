@@ -0,0 +1,139 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.TestLoopers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler.Worker;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the Android schedulers against the plain JVM stand-ins of this module.
+ */
+public class HandlerThreadSchedulerLooperTest {
+
+    private Looper mainLooper;
+    private final List<Long> times = new ArrayList<Long>();
+
+    @Before
+    public void setUp() {
+        TestLoopers.useVirtualTime();
+        mainLooper = TestLoopers.resetMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        TestLoopers.useRealTime();
+    }
+
+    @Test
+    public void shouldRunMainThreadActionsInOrderWhenLooperRuns() {
+        final List<Integer> values = new ArrayList<Integer>();
+        Observable.just(1, 2, 3).observeOn(AndroidSchedulers.mainThread()).subscribe(new Action1<Integer>() {
+            @Override
+            public void call(Integer value) {
+                values.add(value);
+            }
+        });
+        assertTrue(values.isEmpty());
+
+        TestLoopers.runToIdle(mainLooper);
+        assertEquals(Arrays.asList(1, 2, 3), values);
+    }
+
+    @Test
+    public void shouldRunDelayedActionOnceVirtualTimeReachesIt() {
+        final long start = SystemClock.uptimeMillis();
+        final Worker inner = AndroidSchedulers.mainThread().createWorker();
+        inner.schedule(recordTime(start), 100, TimeUnit.MILLISECONDS);
+
+        TestLoopers.advanceBy(mainLooper, 99, TimeUnit.MILLISECONDS);
+        assertTrue(times.isEmpty());
+        TestLoopers.advanceBy(mainLooper, 1, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList(100L), times);
+    }
+
+    @Test
+    public void shouldRunPeriodicActionOnFixedRate() {
+        final long start = SystemClock.uptimeMillis();
+        final Worker inner = new HandlerThreadScheduler(new Handler(mainLooper)).createWorker();
+        final Subscription subscription = inner.schedulePeriodically(recordTime(start), 10, 20, TimeUnit.MILLISECONDS);
+
+        TestLoopers.advanceBy(mainLooper, 75, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList(10L, 30L, 50L, 70L), times);
+
+        subscription.unsubscribe();
+        TestLoopers.advanceBy(mainLooper, 100, TimeUnit.MILLISECONDS);
+        assertEquals(4, times.size());
+    }
+
+    @Test
+    public void shouldRunActionsOnHandlerThreadInRealTime() throws InterruptedException {
+        TestLoopers.useRealTime();
+        final HandlerThread thread = new HandlerThread("test");
+        thread.start();
+        final CountDownLatch done = new CountDownLatch(2);
+        final Thread[] ranOn = new Thread[2];
+        final Worker inner = AndroidSchedulers.handlerThread(new Handler(thread.getLooper()), true).createWorker();
+        inner.schedule(new Action0() {
+            @Override
+            public void call() {
+                ranOn[0] = Thread.currentThread();
+                done.countDown();
+            }
+        });
+        inner.schedule(new Action0() {
+            @Override
+            public void call() {
+                ranOn[1] = Thread.currentThread();
+                done.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(thread, ranOn[0]);
+        assertSame(thread, ranOn[1]);
+        thread.quit();
+    }
+
+    private Action0 recordTime(final long start) {
+        return new Action0() {
+            @Override
+            public void call() {
+                times.add(SystemClock.uptimeMillis() - start);
+            }
+        };
+    }
+}
@@ -2,17 +2,26 @@ package rx.android.content;
 
 import android.app.Activity;
 import android.app.Fragment;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.Scheduler;
 import rx.android.internal.Assertions;
 import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
 import static rx.android.schedulers.AndroidSchedulers.mainThread;
 
@@ -41,6 +50,8 @@ public final class ContentObservable {
                 }
             };
 
+    private static final long DEFAULT_REQUERY_DEBOUNCE_MILLIS = 100;
+
     private static final boolean USES_SUPPORT_FRAGMENTS;
 
     static {
@@ -69,8 +80,48 @@ public final class ContentObservable {
      * @param source   the source sequence
      */
     public static <T> Observable<T> bindActivity(Activity activity, Observable<T> source) {
+        return bindActivity(activity, source, mainThread());
+    }
+
+    /**
+     * Binds the given source sequence to an activity, observing it on the given scheduler.
+     * <p>
+     * Works like {@link #bindActivity(Activity, Observable)}, but lets the caller pick the
+     * scheduler used to get onto the main UI thread, e.g.
+     * {@link rx.android.schedulers.AndroidSchedulers#mainThreadImmediate()} to avoid a Looper
+     * round trip for sources that already emit on the main thread. The scheduler must execute
+     * its actions on the main UI thread.
+     *
+     * @param activity  the activity to bind the source sequence to
+     * @param source    the source sequence
+     * @param scheduler the main thread scheduler to observe the source sequence on
+     */
+    public static <T> Observable<T> bindActivity(Activity activity, Observable<T> source, Scheduler scheduler) {
+        Assertions.assertUiThread();
+        return bindObservedActivity(activity, source.observeOn(scheduler));
+    }
+
+    /**
+     * Binds the given source sequence to an activity, buffering at most {@code capacity} items
+     * on their way to the main UI thread.
+     * <p>
+     * Works like {@link #bindActivity(Activity, Observable)}, but delivers the source sequence
+     * like {@link #observeOnMainThread(Observable, int, OverflowStrategy)} does, so a source
+     * that emits faster than the main UI thread can keep up with does not build up an unbounded
+     * backlog.
+     *
+     * @param activity the activity to bind the source sequence to
+     * @param source   the source sequence
+     * @param capacity the maximum number of items waiting to be delivered
+     * @param strategy what to do with items that arrive while {@code capacity} items are waiting
+     */
+    public static <T> Observable<T> bindActivity(Activity activity, Observable<T> source, int capacity, OverflowStrategy strategy) {
         Assertions.assertUiThread();
-        return source.observeOn(mainThread()).lift(new OperatorConditionalBinding<T, Activity>(activity, ACTIVITY_VALIDATOR));
+        return bindObservedActivity(activity, observeOnMainThread(source, capacity, strategy));
+    }
+
+    private static <T> Observable<T> bindObservedActivity(Activity activity, Observable<T> observed) {
+        return observed.lift(new OperatorConditionalBinding<T, Activity>(activity, ACTIVITY_VALIDATOR));
     }
 
     /**
@@ -88,8 +139,48 @@ public final class ContentObservable {
      * @param source   the source sequence
      */
     public static <T> Observable<T> bindFragment(Object fragment, Observable<T> source) {
+        return bindFragment(fragment, source, mainThread());
+    }
+
+    /**
+     * Binds the given source sequence to a fragment (native or support-v4), observing it on the
+     * given scheduler.
+     * <p>
+     * Works like {@link #bindFragment(Object, Observable)}, but lets the caller pick the
+     * scheduler used to get onto the main UI thread, e.g.
+     * {@link rx.android.schedulers.AndroidSchedulers#mainThreadImmediate()} to avoid a Looper
+     * round trip for sources that already emit on the main thread. The scheduler must execute
+     * its actions on the main UI thread.
+     *
+     * @param fragment  the fragment to bind the source sequence to
+     * @param source    the source sequence
+     * @param scheduler the main thread scheduler to observe the source sequence on
+     */
+    public static <T> Observable<T> bindFragment(Object fragment, Observable<T> source, Scheduler scheduler) {
+        Assertions.assertUiThread();
+        return bindObservedFragment(fragment, source.observeOn(scheduler));
+    }
+
+    /**
+     * Binds the given source sequence to a fragment (native or support-v4), buffering at most
+     * {@code capacity} items on their way to the main UI thread.
+     * <p>
+     * Works like {@link #bindFragment(Object, Observable)}, but delivers the source sequence
+     * like {@link #observeOnMainThread(Observable, int, OverflowStrategy)} does, so a source
+     * that emits faster than the main UI thread can keep up with does not build up an unbounded
+     * backlog.
+     *
+     * @param fragment the fragment to bind the source sequence to
+     * @param source   the source sequence
+     * @param capacity the maximum number of items waiting to be delivered
+     * @param strategy what to do with items that arrive while {@code capacity} items are waiting
+     */
+    public static <T> Observable<T> bindFragment(Object fragment, Observable<T> source, int capacity, OverflowStrategy strategy) {
         Assertions.assertUiThread();
-        final Observable<T> o = source.observeOn(mainThread());
+        return bindObservedFragment(fragment, observeOnMainThread(source, capacity, strategy));
+    }
+
+    private static <T> Observable<T> bindObservedFragment(Object fragment, Observable<T> o) {
         if (USES_SUPPORT_FRAGMENTS && fragment instanceof android.support.v4.app.Fragment) {
             android.support.v4.app.Fragment f = (android.support.v4.app.Fragment) fragment;
             return o.lift(new OperatorConditionalBinding<T, android.support.v4.app.Fragment>(f, FRAGMENTV4_VALIDATOR));
@@ -101,6 +192,26 @@ public final class ContentObservable {
         }
     }
 
+    /**
+     * Delivers the given source sequence on the main UI thread, buffering at most
+     * {@code capacity} items.
+     * <p>
+     * Unlike {@code observeOn(AndroidSchedulers.mainThread())}, which buffers without bounds
+     * when the main UI thread cannot keep up, this asks the source for no more items than fit
+     * into the buffer and deals with items of sources that ignore backpressure, such as
+     * {@link #fromBroadcast(Context, IntentFilter)} or {@link #fromSharedPreferencesChanges(SharedPreferences)},
+     * according to {@code strategy}. The items the subscriber requested are delivered together
+     * from a single message on the main {@link android.os.Looper}. Errors are delivered right
+     * away, dropping buffered items.
+     *
+     * @param source   the source sequence
+     * @param capacity the maximum number of items waiting to be delivered
+     * @param strategy what to do with items that arrive while {@code capacity} items are waiting
+     */
+    public static <T> Observable<T> observeOnMainThread(Observable<T> source, int capacity, OverflowStrategy strategy) {
+        return source.lift(new OperatorObserveOnMainThread<T>(new Handler(Looper.getMainLooper()), capacity, strategy));
+    }
+
     /**
      * Create Observable that wraps BroadcastReceiver and emmit received intents.
      *
@@ -143,12 +254,157 @@ public final class ContentObservable {
         return Observable.create(new OnSubscribeSharedPreferenceChange(sharedPreferences));
     }
 
+    /**
+     * Create Observable that runs the given query on {@link Schedulers#io()} and runs it again
+     * whenever the content at its {@link Uri}, or below it, changes.
+     * <p>
+     * Notifications arriving within 100 milliseconds of each other cause a single requery, see
+     * {@link #query(ContentResolver, Uri, String[], String, String[], String, boolean, Scheduler, long, TimeUnit)}.
+     * Every {@link android.database.Cursor} emitted is owned by the subscriber, which has to close
+     * it, usually once the next one has arrived.
+     */
+    public static Observable<Cursor> query(ContentResolver resolver, Uri uri, String[] projection,
+            String selection, String[] selectionArgs, String sortOrder) {
+        return query(resolver, uri, projection, selection, selectionArgs, sortOrder, true, Schedulers.io(),
+                DEFAULT_REQUERY_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create Observable that runs the given query on the given scheduler and runs it again
+     * whenever the content at its {@link Uri} changes.
+     * <p>
+     * The query runs once when subscribing. A {@link android.database.ContentObserver} registered
+     * until unsubscribing triggers the requeries. Notifications arriving within the debounce time
+     * of each other cause a single requery, which starts once no notification has arrived for the
+     * debounce time. A query that is overtaken by a notification while it runs is dropped and its
+     * cursor closed, as the requery following that notification supersedes it, unless the previous
+     * result was dropped already; queries of one subscription never run concurrently. A query that returns {@code null} is skipped, and one
+     * that throws ends the Observable with the error.
+     * <p>
+     * Every {@link android.database.Cursor} emitted is owned by the subscriber, which has to close
+     * it, usually once the next one has arrived.
+     *
+     * @param notifyForDescendants whether changes of content below the {@link Uri} trigger requeries
+     * @param scheduler the scheduler to run the queries on
+     * @param debounce the time without notifications to wait for before requerying
+     * @param unit the unit of {@code debounce}
+     */
+    public static Observable<Cursor> query(ContentResolver resolver, Uri uri, String[] projection,
+            String selection, String[] selectionArgs, String sortOrder, boolean notifyForDescendants,
+            Scheduler scheduler, long debounce, TimeUnit unit) {
+        if (debounce < 0) {
+            throw new IllegalArgumentException("Debounce time must not be negative");
+        }
+        return Observable.create(new OnSubscribeContentQuery(resolver, uri, projection, selection, selectionArgs,
+                sortOrder, notifyForDescendants, scheduler, unit.toMillis(debounce)));
+    }
+
+    /**
+     * Compares every snapshot of rows emitted by the given source with the previous one and emits
+     * the changes between them, so list adapters only need to update the rows that changed.
+     * <p>
+     * Rows are matched by the keys the selector returns, typically their {@code _id}, and rows with
+     * the same key are compared with {@link Object#equals(Object)} to find updates. The first
+     * snapshot is emitted as insertions of all its rows, later snapshots without changes are
+     * skipped. The comparison runs on the thread the snapshots are emitted on, so emit them from a
+     * background thread and observe the changes on the main UI thread.
+     *
+     * @param snapshots the snapshots of rows, none of them containing a key more than once
+     * @param keySelector returns the key of a row
+     */
+    public static <T, K> Observable<RowChangeSet<T>> diff(Observable<List<T>> snapshots, Func1<? super T, K> keySelector) {
+        return snapshots.lift(new OperatorDiffRows<T, K>(keySelector));
+    }
+
+    /**
+     * Decodes every {@link android.database.Cursor} emitted by the given source with the given
+     * {@link RowMapper}, closes it, and emits the changes between its rows and the rows of the
+     * previous one.
+     * <p>
+     * Meant for the cursors emitted by {@link #query(ContentResolver, Uri, String[], String, String[], String)},
+     * whose background thread then decodes and compares the rows. See
+     * {@link #diff(Observable, Func1)} for how the changes are found.
+     *
+     * @param cursors the cursors, positioned before their first rows
+     * @param mapper decodes each row into an immutable value
+     * @param keySelector returns the key of a row
+     */
+    public static <T, K> Observable<RowChangeSet<T>> diff(Observable<Cursor> cursors, final RowMapper<T> mapper,
+            Func1<? super T, K> keySelector) {
+        return diff(cursors.map(new Func1<Cursor, List<T>>() {
+            @Override
+            public List<T> call(Cursor cursor) {
+                try {
+                    final int[] columns = mapper.resolveColumns(cursor);
+                    final List<T> rows = new ArrayList<T>(Math.max(cursor.getCount(), 0));
+                    while (cursor.moveToNext()) {
+                        rows.add(mapper.map(cursor, columns));
+                    }
+                    return rows;
+                } finally {
+                    cursor.close();
+                }
+            }
+        }), keySelector);
+    }
+
     /**
      * Create Observable that emits the specified {@link android.database.Cursor} for each available position
      * of the cursor moving to the next position before each call and closing the cursor whether the
      * Observable completes or an error occurs.
      */
     public static Observable<Cursor> fromCursor(final Cursor cursor) {
-        return Observable.create(new OnSubscribeCursor(cursor));
+        return Observable.create(new OnSubscribeCursor<Cursor>(cursor, OnSubscribeCursor.POSITIONS));
+    }
+
+    /**
+     * Create Observable that emits the rows of the specified {@link android.database.Cursor}, decoded
+     * by the given {@link RowMapper}, closing the cursor when the Observable completes, fails or is
+     * unsubscribed from.
+     * <p>
+     * The indices of the mapper's columns are looked up once, when subscribing. Unlike the cursor
+     * itself the decoded rows can safely be observed on another thread.
+     *
+     * @param cursor the cursor to read, positioned before its first row
+     * @param mapper decodes each row into an immutable value
+     */
+    public static <T> Observable<T> fromCursor(final Cursor cursor, final RowMapper<T> mapper) {
+        return Observable.create(new OnSubscribeCursor<T>(cursor, mapper));
+    }
+
+    /**
+     * Create Observable that emits the rows of the specified {@link android.database.Cursor} in
+     * chunks, decoded by the given {@link RowMapper}, closing the cursor when the Observable
+     * completes, fails or is unsubscribed from.
+     * <p>
+     * A chunk holds the rows up to the end of the {@link android.database.CursorWindow} that holds
+     * its first row, so the rows are decoded in one pass over memory that is already filled.
+     * Cursors that are not windowed are emitted in chunks of 256 rows. Each chunk counts as one item
+     * towards backpressure.
+     *
+     * @param cursor the cursor to read, positioned before its first row
+     * @param mapper decodes each row into an immutable value
+     */
+    public static <T> Observable<List<T>> fromCursorChunks(final Cursor cursor, final RowMapper<T> mapper) {
+        return fromCursorChunks(cursor, mapper, 0);
+    }
+
+    /**
+     * Create Observable that emits the rows of the specified {@link android.database.Cursor} in
+     * chunks of the given size, decoded by the given {@link RowMapper}, closing the cursor when the
+     * Observable completes, fails or is unsubscribed from.
+     * <p>
+     * Only the last chunk may hold fewer rows. Each chunk counts as one item towards backpressure.
+     *
+     * @param cursor the cursor to read, positioned before its first row
+     * @param mapper decodes each row into an immutable value
+     * @param chunkSize the number of rows per chunk, or {@code 0} to end chunks with the cursor's
+     *                  windows as {@link #fromCursorChunks(Cursor, RowMapper)} does
+     */
+    public static <T> Observable<List<T>> fromCursorChunks(final Cursor cursor, final RowMapper<T> mapper, int chunkSize) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("Chunk size must not be negative");
+        }
+        return Observable.create(new OnSubscribeCursor<List<T>>(cursor, new RowChunkMapper<T>(mapper, chunkSize)));
     }
 }
@@ -0,0 +1,171 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Runs a query on a worker of the given scheduler, and runs it again whenever the content at its
+ * {@link Uri} changes.
+ * <p>
+ * Notifications arriving within the debounce time of each other cause a single requery, which
+ * starts once no notification has arrived for the debounce time, measured on a monotonic clock.
+ * The result of a query that was overtaken by a notification while it was running is closed
+ * instead of emitted, as the query following that notification supersedes it; but never two
+ * results in a row, so content that changes faster than it can be queried still gets delivered.
+ * Queries of one subscription never run concurrently.
+ */
+class OnSubscribeContentQuery implements Observable.OnSubscribe<Cursor> {
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final String[] projection;
+    private final String selection;
+    private final String[] selectionArgs;
+    private final String sortOrder;
+    private final boolean notifyForDescendants;
+    private final Scheduler scheduler;
+    private final long debounceMillis;
+    private final long debounceNanos;
+
+    OnSubscribeContentQuery(ContentResolver resolver, Uri uri, String[] projection, String selection,
+            String[] selectionArgs, String sortOrder, boolean notifyForDescendants, Scheduler scheduler,
+            long debounceMillis) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.projection = projection;
+        this.selection = selection;
+        this.selectionArgs = selectionArgs;
+        this.sortOrder = sortOrder;
+        this.notifyForDescendants = notifyForDescendants;
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+    }
+
+    @Override
+    public void call(final Subscriber<? super Cursor> subscriber) {
+        final Scheduler.Worker worker = scheduler.createWorker();
+        subscriber.add(worker);
+        final Requery requery = new Requery(subscriber, worker);
+        // without a handler, changes are reported on the thread that notifies
+        final ContentObserver observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                requery.onChange();
+            }
+        };
+
+        subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                resolver.unregisterContentObserver(observer);
+            }
+        }));
+
+        resolver.registerContentObserver(uri, notifyForDescendants, observer);
+        requery.start();
+    }
+
+    /* Visible for testing */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private final class Requery implements Action0 {
+
+        private final Subscriber<? super Cursor> subscriber;
+        private final Scheduler.Worker worker;
+
+        // counts the notifications, so a query can tell whether one arrived while it ran
+        private final AtomicLong changes = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastChangeAt;
+
+        // whether the previous result was dropped; only touched by the queries, which never run
+        // concurrently
+        private boolean dropped;
+
+        Requery(Subscriber<? super Cursor> subscriber, Scheduler.Worker worker) {
+            this.subscriber = subscriber;
+            this.worker = worker;
+        }
+
+        void start() {
+            lastChangeAt = nanoTime() - debounceNanos;
+            scheduled.set(true);
+            worker.schedule(this);
+        }
+
+        void onChange() {
+            lastChangeAt = nanoTime();
+            changes.incrementAndGet();
+            if (scheduled.compareAndSet(false, true)) {
+                worker.schedule(this, debounceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void call() {
+            final long wait = lastChangeAt + debounceNanos - nanoTime();
+            if (wait > 0) {
+                // a later notification restarted the debounce time
+                worker.schedule(this, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+            // from here on a notification schedules another query
+            scheduled.set(false);
+            final long changesBefore = changes.get();
+
+            final Cursor cursor;
+            try {
+                cursor = resolver.query(uri, projection, selection, selectionArgs, sortOrder);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                subscriber.onError(e);
+                return;
+            }
+            if (cursor == null) {
+                // the provider failed, the next notification tries again
+                return;
+            }
+            if (subscriber.isUnsubscribed()) {
+                cursor.close();
+                return;
+            }
+            if (changes.get() != changesBefore && !dropped) {
+                // the next query is already scheduled and supersedes this one
+                dropped = true;
+                cursor.close();
+                return;
+            }
+            dropped = false;
+            subscriber.onNext(cursor);
+        }
+    }
+}
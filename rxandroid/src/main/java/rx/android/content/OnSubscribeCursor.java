@@ -15,32 +15,146 @@ package rx.android.content;
 
 import android.database.Cursor;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import rx.Observable;
+import rx.Producer;
 import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 /**
- * Emits a {@link android.database.Cursor} for every available position.
+ * Emits a value decoded by a {@link RowMapper} for every available position of a
+ * {@link android.database.Cursor}, or the cursor itself for {@link #POSITIONS}.
+ * <p>
+ * The cursor is only moved as far as the subscriber requested, and moving resumes on the thread
+ * of the next request. The cursor is closed after the last position, after an error, or when the
+ * subscriber unsubscribes, whichever comes first; it is never closed while another thread is
+ * moving it.
  */
-final class OnSubscribeCursor implements Observable.OnSubscribe<Cursor> {
+final class OnSubscribeCursor<T> implements Observable.OnSubscribe<T> {
+
+    /**
+     * Emits the cursor itself, moved to the next position.
+     */
+    static final RowMapper<Cursor> POSITIONS = new RowMapper<Cursor>() {
+        @Override
+        public Cursor map(Cursor cursor, int[] columns) {
+            return cursor;
+        }
+    };
 
     private final Cursor cursor;
+    private final RowMapper<T> mapper;
 
-    OnSubscribeCursor(final Cursor cursor) {
+    OnSubscribeCursor(final Cursor cursor, final RowMapper<T> mapper) {
         this.cursor = cursor;
+        this.mapper = mapper;
     }
 
     @Override
-    public void call(final Subscriber<? super Cursor> subscriber) {
+    public void call(final Subscriber<? super T> subscriber) {
+        final int[] columns;
         try {
-            while (!subscriber.isUnsubscribed() && cursor.moveToNext()) {
-                subscriber.onNext(cursor);
-            }
-        } finally {
+            columns = mapper.resolveColumns(cursor);
+        } catch (RuntimeException e) {
             if (!cursor.isClosed()) {
                 cursor.close();
             }
+            subscriber.onError(e);
+            return;
         }
-        subscriber.onCompleted();
+        final CursorProducer<T> producer = new CursorProducer<T>(cursor, mapper, columns, subscriber);
+        subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                producer.onUnsubscribe();
+            }
+        }));
+        subscriber.setProducer(producer);
     }
 
+    private static final class CursorProducer<T> implements Producer {
+
+        private final Cursor cursor;
+        private final RowMapper<T> mapper;
+        private final int[] columns;
+        private final Subscriber<? super T> subscriber;
+
+        // the positions requested but not emitted yet; the thread that raises it from zero moves
+        // the cursor until it is back at zero, or for good once the cursor is closed
+        private final AtomicLong requested = new AtomicLong();
+
+        CursorProducer(Cursor cursor, RowMapper<T> mapper, int[] columns, Subscriber<? super T> subscriber) {
+            this.cursor = cursor;
+            this.mapper = mapper;
+            this.columns = columns;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n > 0 && add(n) == 0) {
+                emit(n);
+            }
+        }
+
+        void onUnsubscribe() {
+            // claim the cursor like a request does, so it is not closed while being moved
+            if (add(1) == 0) {
+                close();
+            }
+        }
+
+        private void emit(long r) {
+            try {
+                while (true) {
+                    long emitted = 0;
+                    while (emitted != r) {
+                        if (subscriber.isUnsubscribed()) {
+                            close();
+                            return;
+                        }
+                        if (!cursor.moveToNext()) {
+                            close();
+                            subscriber.onCompleted();
+                            return;
+                        }
+                        subscriber.onNext(mapper.map(cursor, columns));
+                        emitted++;
+                    }
+                    if (r != Long.MAX_VALUE) {
+                        r = requested.addAndGet(-emitted);
+                        if (r == 0) {
+                            return;
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                close();
+                Exceptions.throwIfFatal(e);
+                subscriber.onError(e);
+            }
+        }
+
+        private long add(long n) {
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!requested.compareAndSet(current, next));
+            return current;
+        }
+
+        private void close() {
+            if (!cursor.isClosed()) {
+                cursor.close();
+            }
+        }
+    }
 }
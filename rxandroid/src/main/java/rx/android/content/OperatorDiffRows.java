@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Func1;
+
+/**
+ * Compares every snapshot of rows with the previous one and emits the changes between them.
+ * <p>
+ * Rows are matched by their keys and compared with {@link Object#equals(Object)}. The first
+ * snapshot is emitted as insertions into an empty list, later snapshots without changes are not
+ * emitted at all. The comparison runs on the thread that emits the snapshots.
+ * <p>
+ * Rows that keep their order relative to each other, the longest such run, stay where they are;
+ * every other row that survives is moved at most twice, so the number of moves stays in
+ * proportion to the number of rows that actually changed their position.
+ *
+ * @param <T> the type of the rows
+ * @param <K> the type of the keys
+ */
+final class OperatorDiffRows<T, K> implements Observable.Operator<RowChangeSet<T>, List<T>> {
+
+    private final Func1<? super T, K> keySelector;
+
+    OperatorDiffRows(Func1<? super T, K> keySelector) {
+        this.keySelector = keySelector;
+    }
+
+    @Override
+    public Subscriber<? super List<T>> call(final Subscriber<? super RowChangeSet<T>> child) {
+        return new Subscriber<List<T>>(child) {
+
+            private List<T> previous;
+
+            @Override
+            public void onCompleted() {
+                child.onCompleted();
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                child.onError(e);
+            }
+
+            @Override
+            public void onNext(List<T> rows) {
+                final List<RowChange> changes;
+                try {
+                    changes = diff(previous == null ? Collections.<T>emptyList() : previous, rows);
+                } catch (RuntimeException e) {
+                    onError(e);
+                    unsubscribe();
+                    return;
+                }
+                final boolean first = previous == null;
+                previous = rows;
+                if (first || !changes.isEmpty()) {
+                    child.onNext(new RowChangeSet<T>(rows, changes));
+                } else {
+                    // nothing was emitted for this snapshot, so ask for another one
+                    request(1);
+                }
+            }
+        };
+    }
+
+    /* Visible for testing */
+    List<RowChange> diff(List<T> previous, List<T> rows) {
+        final Map<K, Integer> oldPositions = positions(previous);
+        final Map<K, Integer> newPositions = positions(rows);
+        final List<RowChange> changes = new ArrayList<RowChange>();
+
+        // deletions from the last to the first position, so earlier positions stay valid
+        final List<K> current = new ArrayList<K>(previous.size());
+        for (int i = previous.size() - 1; i >= 0; i--) {
+            final K key = keySelector.call(previous.get(i));
+            if (newPositions.containsKey(key)) {
+                current.add(key);
+            } else {
+                changes.add(RowChange.delete(i));
+            }
+        }
+        Collections.reverse(current);
+
+        // the surviving rows of the longest run in unchanged order do not move
+        final int[] targets = new int[current.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = newPositions.get(current.get(i));
+        }
+        final boolean[] stable = new boolean[rows.size()];
+        for (int target : longestIncreasingRun(targets)) {
+            stable[target] = true;
+        }
+
+        // build the new order from the front: rows before position i are in place
+        for (int i = 0; i < rows.size(); i++) {
+            final K key = keySelector.call(rows.get(i));
+            if (!oldPositions.containsKey(key)) {
+                current.add(i, key);
+                changes.add(RowChange.insert(i));
+            } else if (stable[i]) {
+                // rows in front of a stable row are all moving, park them at the end for now
+                while (!equal(current.get(i), key)) {
+                    current.add(current.remove(i));
+                    changes.add(RowChange.move(i, current.size() - 1));
+                }
+            } else if (!equal(current.get(i), key)) {
+                final int from = current.subList(i, current.size()).indexOf(key) + i;
+                current.add(i, current.remove(from));
+                changes.add(RowChange.move(from, i));
+            }
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            final T row = rows.get(i);
+            final Integer oldPosition = oldPositions.get(keySelector.call(row));
+            if (oldPosition != null && !equal(previous.get(oldPosition), row)) {
+                changes.add(RowChange.update(i));
+            }
+        }
+        return changes;
+    }
+
+    private Map<K, Integer> positions(List<T> rows) {
+        final Map<K, Integer> positions = new HashMap<K, Integer>(rows.size() * 2);
+        for (int i = 0; i < rows.size(); i++) {
+            final K key = keySelector.call(rows.get(i));
+            if (positions.put(key, i) != null) {
+                throw new IllegalArgumentException("Rows contain the key " + key + " more than once");
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * @return the values of the longest strictly increasing subsequence of the given values
+     */
+    private static int[] longestIncreasingRun(int[] values) {
+        // tails[l] is the index of the smallest value ending an increasing run of length l + 1
+        final int[] tails = new int[values.length];
+        final int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        final int[] run = new int[length];
+        for (int i = length - 1, index = length > 0 ? tails[length - 1] : -1; i >= 0; i--) {
+            run[i] = values[index];
+            index = predecessors[index];
+        }
+        return run;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+import rx.exceptions.MissingBackpressureException;
+import rx.functions.Action0;
+import rx.internal.operators.NotificationLite;
+import rx.subscriptions.Subscriptions;
+import android.os.Handler;
+
+/**
+ * Delivers the items of a source sequence on the thread of a {@link Handler}, buffering at most
+ * a fixed number of them.
+ * <p>
+ * The source is asked for as many items as the buffer holds, and for more as they are delivered,
+ * so sources that support backpressure never overflow it. Items of sources that do not are
+ * dealt with according to an {@link OverflowStrategy}. All items that the subscriber has
+ * requested and that are buffered are delivered together from a single {@link Handler} message.
+ * Errors are delivered right away, dropping buffered items, completion once the buffer is
+ * drained.
+ *
+ * @param <T> the type of the items
+ */
+final class OperatorObserveOnMainThread<T> implements Observable.Operator<T, T> {
+
+    private final Handler handler;
+    private final int capacity;
+    private final OverflowStrategy strategy;
+
+    OperatorObserveOnMainThread(Handler handler, int capacity, OverflowStrategy strategy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("Overflow strategy must be given");
+        }
+        this.handler = handler;
+        this.capacity = strategy == OverflowStrategy.LATEST ? 1 : capacity;
+        this.strategy = strategy;
+    }
+
+    @Override
+    public Subscriber<? super T> call(final Subscriber<? super T> child) {
+        final ObserveOnSubscriber<T> parent = new ObserveOnSubscriber<T>(handler, capacity, strategy, child);
+        parent.init();
+        return parent;
+    }
+
+    private static final class ObserveOnSubscriber<T> extends Subscriber<T> implements Runnable {
+
+        private final NotificationLite<T> on = NotificationLite.instance();
+
+        private final Handler handler;
+        private final OverflowStrategy strategy;
+        private final Subscriber<? super T> child;
+
+        // ring buffer of items in NotificationLite form; guarded by this
+        private final Object[] buffer;
+        private int head;
+        private int size;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        private volatile Throwable error;
+
+        ObserveOnSubscriber(Handler handler, int capacity, OverflowStrategy strategy, Subscriber<? super T> child) {
+            this.handler = handler;
+            this.strategy = strategy;
+            this.child = child;
+            this.buffer = new Object[capacity];
+        }
+
+        void init() {
+            child.add(this);
+            child.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    handler.removeCallbacks(ObserveOnSubscriber.this);
+                    clear();
+                }
+            }));
+            child.setProducer(new Producer() {
+                @Override
+                public void request(long n) {
+                    if (n <= 0) {
+                        return;
+                    }
+                    long current;
+                    long next;
+                    do {
+                        current = requested.get();
+                        next = current + n;
+                        if (next < 0) {
+                            next = Long.MAX_VALUE;
+                        }
+                    } while (!requested.compareAndSet(current, next));
+                    schedule();
+                }
+            });
+        }
+
+        @Override
+        public void onStart() {
+            request(buffer.length);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            if (!offer(on.next(t))) {
+                unsubscribe();
+                onError(new MissingBackpressureException());
+                return;
+            }
+            schedule();
+        }
+
+        @Override
+        public void onCompleted() {
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            error = e;
+            done = true;
+            schedule();
+        }
+
+        /**
+         * Drains the buffer on the handler's thread.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                final long r = requested.get();
+                long emitted = 0;
+                for (;;) {
+                    if (child.isUnsubscribed() || checkTerminated()) {
+                        return;
+                    }
+                    if (emitted == r) {
+                        break;
+                    }
+                    final Object item = poll();
+                    if (item == null) {
+                        break;
+                    }
+                    child.onNext(on.getValue(item));
+                    emitted++;
+                }
+                if (emitted > 0) {
+                    if (r != Long.MAX_VALUE) {
+                        requested.addAndGet(-emitted);
+                    }
+                    request(emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                handler.post(this);
+            }
+        }
+
+        private boolean checkTerminated() {
+            if (!done) {
+                return false;
+            }
+            final Throwable e = error;
+            if (e != null) {
+                clear();
+                child.onError(e);
+                return true;
+            }
+            if (isEmpty()) {
+                child.onCompleted();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return false if the buffer is full and the strategy is to fail
+         */
+        private synchronized boolean offer(Object item) {
+            final int length = buffer.length;
+            if (size == length) {
+                switch (strategy) {
+                    case DROP_NEWEST:
+                        return true;
+                    case ERROR:
+                        return false;
+                    default:
+                        buffer[head] = null;
+                        head = (head + 1) % length;
+                        size--;
+                }
+            }
+            buffer[(head + size) % length] = item;
+            size++;
+            return true;
+        }
+
+        private synchronized Object poll() {
+            if (size == 0) {
+                return null;
+            }
+            final Object item = buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            size--;
+            return item;
+        }
+
+        private synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        private synchronized void clear() {
+            while (size > 0) {
+                buffer[head] = null;
+                head = (head + 1) % buffer.length;
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+/**
+ * What a bounded delivery to the main UI thread does with an item that arrives while its buffer
+ * is full, see {@link ContentObservable#observeOnMainThread(rx.Observable, int, OverflowStrategy)}.
+ */
+public enum OverflowStrategy {
+
+    /**
+     * Drops the oldest buffered item to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drops the new item and keeps the buffered ones.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Keeps only the newest item, which replaces any item that is still waiting. The capacity
+     * of the buffer is ignored.
+     */
+    LATEST,
+
+    /**
+     * Unsubscribes from the source and fails with a
+     * {@link rx.exceptions.MissingBackpressureException}.
+     */
+    ERROR
+}
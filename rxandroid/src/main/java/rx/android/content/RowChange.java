@@ -0,0 +1,73 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * A single change between two snapshots of rows, see {@link RowChangeSet}.
+ * <p>
+ * Positions refer to the rows as they are after the changes preceding this one have been applied,
+ * so applying the changes of a set one after the other turns the previous rows into the new ones.
+ */
+@AutoValue
+public abstract class RowChange {
+
+    public enum Type {
+        /**
+         * A row was inserted at {@link #position()}.
+         */
+        INSERT,
+        /**
+         * The row at {@link #position()} was removed.
+         */
+        DELETE,
+        /**
+         * The row at {@link #fromPosition()} was moved to {@link #position()}.
+         */
+        MOVE,
+        /**
+         * The row at {@link #position()} kept its key but changed its contents.
+         */
+        UPDATE
+    }
+
+    public abstract Type type();
+
+    /**
+     * @return the position the change applies to, or the new position of a moved row
+     */
+    public abstract int position();
+
+    /**
+     * @return the position a moved row was taken from, or {@link #position()} for other changes
+     */
+    public abstract int fromPosition();
+
+    public static RowChange insert(int position) {
+        return new AutoValue_RowChange(Type.INSERT, position, position);
+    }
+
+    public static RowChange delete(int position) {
+        return new AutoValue_RowChange(Type.DELETE, position, position);
+    }
+
+    public static RowChange move(int fromPosition, int toPosition) {
+        return new AutoValue_RowChange(Type.MOVE, toPosition, fromPosition);
+    }
+
+    public static RowChange update(int position) {
+        return new AutoValue_RowChange(Type.UPDATE, position, position);
+    }
+}
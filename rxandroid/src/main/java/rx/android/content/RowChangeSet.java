@@ -0,0 +1,58 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import java.util.List;
+
+/**
+ * The changes between two snapshots of rows, as emitted by
+ * {@link ContentObservable#diff(rx.Observable, rx.functions.Func1)}, together with the new rows.
+ * <p>
+ * Deletions come first, from the last position to the first, followed by moves and insertions in
+ * the order of the new rows and finally updates at their new positions. A list adapter can apply
+ * the changes in that order, e.g. by notifying about each of them, after switching to
+ * {@link #rows()}.
+ *
+ * @param <T> the type of the rows
+ */
+public final class RowChangeSet<T> {
+
+    private final List<T> rows;
+    private final List<RowChange> changes;
+
+    RowChangeSet(List<T> rows, List<RowChange> changes) {
+        this.rows = rows;
+        this.changes = changes;
+    }
+
+    /**
+     * @return the new rows, which must not be modified
+     */
+    public List<T> rows() {
+        return rows;
+    }
+
+    /**
+     * @return the changes that turn the previous rows into {@link #rows()}, in the order they
+     *         have to be applied
+     */
+    public List<RowChange> changes() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "RowChangeSet{rows=" + rows + ", changes=" + changes + "}";
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a chunk of consecutive rows with another {@link RowMapper}, starting at the row the
+ * cursor is positioned at and leaving the cursor at the last row of the chunk.
+ * <p>
+ * With a chunk size of {@code 0} a chunk ends where the {@link CursorWindow} holding its first row
+ * ends, so that the rows of a chunk are copied from memory without refilling the window.
+ * Cursors that are not windowed use {@link #DEFAULT_CHUNK_SIZE} then.
+ */
+final class RowChunkMapper<T> extends RowMapper<List<T>> {
+
+    static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final RowMapper<T> mapper;
+    private final int chunkSize;
+
+    RowChunkMapper(RowMapper<T> mapper, int chunkSize) {
+        this.mapper = mapper;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public List<T> map(Cursor cursor, int[] columns) {
+        final int size = sizeAt(cursor);
+        final List<T> chunk = new ArrayList<T>(Math.min(size, DEFAULT_CHUNK_SIZE));
+        chunk.add(mapper.map(cursor, columns));
+        while (chunk.size() < size && cursor.moveToNext()) {
+            chunk.add(mapper.map(cursor, columns));
+        }
+        return chunk;
+    }
+
+    @Override
+    int[] resolveColumns(Cursor cursor) {
+        return mapper.resolveColumns(cursor);
+    }
+
+    private int sizeAt(Cursor cursor) {
+        if (chunkSize > 0) {
+            return chunkSize;
+        }
+        if (cursor instanceof AbstractWindowedCursor) {
+            final CursorWindow window = ((AbstractWindowedCursor) cursor).getWindow();
+            if (window != null) {
+                final int remaining = window.getStartPosition() + window.getNumRows() - cursor.getPosition();
+                if (remaining > 0) {
+                    return remaining;
+                }
+            }
+        }
+        return DEFAULT_CHUNK_SIZE;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.database.Cursor;
+
+/**
+ * Decodes the rows of a {@link Cursor} into values, see
+ * {@link ContentObservable#fromCursor(Cursor, RowMapper)}.
+ * <p>
+ * The mapper names the columns it reads. Their indices are looked up once per cursor and passed
+ * to {@link #map(Cursor, int[])} for every row, so rows are not decoded by column name. A mapper
+ * holds no state of its own and can be shared by any number of cursors and threads.
+ *
+ * @param <T> the type of the decoded rows
+ */
+public abstract class RowMapper<T> {
+
+    private final String[] columnNames;
+
+    /**
+     * Constructs a {@link RowMapper} reading the given columns.
+     *
+     * @param columnNames
+     *            the names of the columns the mapper reads, in the order their indices are passed
+     *            to {@link #map(Cursor, int[])}
+     */
+    protected RowMapper(String... columnNames) {
+        this.columnNames = columnNames.clone();
+    }
+
+    /**
+     * Decodes the row the cursor is positioned at.
+     * <p>
+     * The value may be used after the cursor has moved on, and on another thread, so it must not
+     * hold on to the cursor; copy what is needed into an immutable value instead.
+     *
+     * @param cursor
+     *            the cursor, positioned at the row to decode
+     * @param columns
+     *            the indices of the columns named in the constructor, in the same order
+     * @return the decoded row
+     */
+    public abstract T map(Cursor cursor, int[] columns);
+
+    /**
+     * Looks up the indices of the mapper's columns in the given cursor.
+     *
+     * @throws IllegalArgumentException if the cursor lacks one of the columns
+     */
+    int[] resolveColumns(Cursor cursor) {
+        final int[] columns = new int[columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = cursor.getColumnIndexOrThrow(columnNames[i]);
+        }
+        return columns;
+    }
+}
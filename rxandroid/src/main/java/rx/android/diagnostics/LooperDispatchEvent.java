@@ -0,0 +1,53 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import com.google.auto.value.AutoValue;
+
+@AutoValue
+public abstract class LooperDispatchEvent {
+    /**
+     * @return the class name of the Handler the message was dispatched to
+     */
+    public abstract String target();
+
+    /**
+     * @return the class name of the message's callback, or an empty string if it had none
+     */
+    public abstract String callback();
+
+    /**
+     * @return the message's {@code what}
+     */
+    public abstract int what();
+
+    /**
+     * @return the uptime at which dispatching started, in milliseconds
+     */
+    public abstract long startMillis();
+
+    /**
+     * @return the uptime at which dispatching finished, in milliseconds
+     */
+    public abstract long endMillis();
+
+    public long durationMillis() {
+        return endMillis() - startMillis();
+    }
+
+    public static LooperDispatchEvent create(String target, String callback, int what, long startMillis, long endMillis) {
+        return new AutoValue_LooperDispatchEvent(target, callback, what, startMillis, endMillis);
+    }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Observables that report on the health of Android Loopers.
+ */
+public final class LooperObservable {
+    private LooperObservable() {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * Times the messages the main Looper dispatches.
+     *
+     * @see #dispatches(Looper, int, long, TimeUnit)
+     */
+    public static Observable<LooperDispatchEvent> mainLooperDispatches(int sampleEvery, long minDuration, TimeUnit unit) {
+        return dispatches(Looper.getMainLooper(), sampleEvery, minDuration, unit);
+    }
+
+    /**
+     * Times the messages the given Looper dispatches, based on the lines it logs through
+     * {@link Looper#setMessageLogging(android.util.Printer)}.
+     * <p>
+     * Every {@code sampleEvery}th message is timed, and a {@link LooperDispatchEvent} is emitted on
+     * the Looper's thread for those that took at least {@code minDuration}. The log lines of other
+     * messages are not inspected beyond their first characters, and no objects are created for
+     * them, so with a sampling rate and a minimum duration set the stream can stay on in production.
+     * Actions of {@link rx.android.schedulers.HandlerThreadScheduler} show up with the class of the
+     * action in {@link LooperDispatchEvent#callback()}.
+     * <p>
+     * A Looper has a single message logging printer, so this replaces any printer set elsewhere,
+     * and the printer is removed again when the last subscriber unsubscribes. The returned
+     * Observable is shared between all of its subscribers.
+     *
+     * @param looper      the Looper to watch
+     * @param sampleEvery time one out of this many messages, {@code 1} to time all of them
+     * @param minDuration the time a sampled message must take to be emitted
+     * @param unit        the unit of {@code minDuration}
+     */
+    public static Observable<LooperDispatchEvent> dispatches(Looper looper, int sampleEvery, long minDuration, TimeUnit unit) {
+        if (looper == null || unit == null) {
+            throw new IllegalArgumentException("Looper and TimeUnit must be given");
+        }
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("Sampling rate must be at least one");
+        }
+        return Observable.create(new OnSubscribeLooperDispatch(looper, sampleEvery, unit.toMillis(minDuration))).share();
+    }
+
+    /**
+     * Watches the main Looper for stalls.
+     *
+     * @see #stalls(Handler, long, TimeUnit, boolean, Scheduler)
+     */
+    public static Observable<LooperStallEvent> mainLooperStalls(long threshold, TimeUnit unit, boolean sampleStackTrace) {
+        return stalls(new Handler(Looper.getMainLooper()), threshold, unit, sampleStackTrace, Schedulers.newThread());
+    }
+
+    /**
+     * Watches the Looper of the given handler for stalls.
+     * <p>
+     * While subscribed, a watchdog running on {@code scheduler} keeps a heartbeat message posted
+     * to the handler, posting the next one as soon as the previous one has been handled. When a
+     * heartbeat has been waiting for longer than {@code threshold}, the Looper is considered stalled
+     * and a {@link LooperStallEvent} is emitted on the watchdog's thread, once per stall. While the
+     * Looper keeps up, this costs one short message every half threshold.
+     * <p>
+     * The returned Observable is shared: however many subscribers there are, a single watchdog
+     * serves them all. It starts with the first subscriber and stops with the last one.
+     *
+     * @param handler          the handler of the Looper to watch
+     * @param threshold        the time a message may wait before the Looper counts as stalled
+     * @param unit             the unit of {@code threshold}
+     * @param sampleStackTrace whether to capture the stack trace of the Looper's thread for every stall
+     * @param scheduler        the scheduler the watchdog runs on, which must not run on the watched Looper
+     */
+    public static Observable<LooperStallEvent> stalls(Handler handler, long threshold, TimeUnit unit,
+                                                      boolean sampleStackTrace, Scheduler scheduler) {
+        if (handler == null || unit == null || scheduler == null) {
+            throw new IllegalArgumentException("Handler, TimeUnit and Scheduler must be given");
+        }
+        final long thresholdMillis = unit.toMillis(threshold);
+        if (thresholdMillis < 1) {
+            throw new IllegalArgumentException("Threshold must be at least one millisecond");
+        }
+        return Observable.create(new OnSubscribeLooperStall(handler, thresholdMillis, sampleStackTrace, scheduler)).share();
+    }
+}
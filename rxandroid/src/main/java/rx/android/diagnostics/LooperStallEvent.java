@@ -0,0 +1,42 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import java.util.List;
+
+import com.google.auto.value.AutoValue;
+
+@AutoValue
+public abstract class LooperStallEvent {
+    /**
+     * @return how long the Looper had been blocked when the stall was detected, in milliseconds
+     */
+    public abstract long stallMillis();
+
+    /**
+     * @return the threshold the stall exceeded, in milliseconds
+     */
+    public abstract long thresholdMillis();
+
+    /**
+     * @return the stack trace of the Looper's thread at the time of detection, or an empty list
+     *         if stack traces are not sampled
+     */
+    public abstract List<StackTraceElement> stackTrace();
+
+    public static LooperStallEvent create(long stallMillis, long thresholdMillis, List<StackTraceElement> stackTrace) {
+        return new AutoValue_LooperStallEvent(stallMillis, thresholdMillis, stackTrace);
+    }
+
+}
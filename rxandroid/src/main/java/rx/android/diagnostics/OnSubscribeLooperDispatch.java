@@ -0,0 +1,131 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Printer;
+
+class OnSubscribeLooperDispatch implements Observable.OnSubscribe<LooperDispatchEvent> {
+
+    private static final String DISPATCHING = ">>>>> Dispatching to ";
+    private static final String FINISHED = "<<<<< Finished to ";
+    private static final String HANDLER = "Handler (";
+
+    private final Looper looper;
+    private final int sampleEvery;
+    private final long minDurationMillis;
+
+    public OnSubscribeLooperDispatch(Looper looper, int sampleEvery, long minDurationMillis) {
+        this.looper = looper;
+        this.sampleEvery = sampleEvery;
+        this.minDurationMillis = minDurationMillis;
+    }
+
+    @Override
+    public void call(final Subscriber<? super LooperDispatchEvent> subscriber) {
+        final DispatchPrinter printer = new DispatchPrinter(subscriber);
+
+        subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                looper.setMessageLogging(null);
+            }
+        }));
+
+        looper.setMessageLogging(printer);
+    }
+
+    /**
+     * Receives the two lines the Looper logs around every message it dispatches. Lines are only
+     * kept by reference and timed; they are parsed only for messages that end up being emitted.
+     */
+    private final class DispatchPrinter implements Printer {
+
+        private final Subscriber<? super LooperDispatchEvent> subscriber;
+
+        // only touched on the Looper's thread
+        private int count;
+        private String dispatching;
+        private long startMillis;
+
+        DispatchPrinter(Subscriber<? super LooperDispatchEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void println(String line) {
+            if (line.startsWith(DISPATCHING)) {
+                if (++count >= sampleEvery) {
+                    count = 0;
+                    dispatching = line;
+                    startMillis = SystemClock.uptimeMillis();
+                }
+            } else if (dispatching != null && line.startsWith(FINISHED)) {
+                final long endMillis = SystemClock.uptimeMillis();
+                final String dispatching = this.dispatching;
+                this.dispatching = null;
+                if (endMillis - startMillis >= minDurationMillis) {
+                    subscriber.onNext(parse(dispatching, startMillis, endMillis));
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a line of the form
+     * {@code >>>>> Dispatching to Handler (class) {hash} callback: what}.
+     */
+    static LooperDispatchEvent parse(String line, long startMillis, long endMillis) {
+        int whatSeparator = line.lastIndexOf(": ");
+        int what = 0;
+        if (whatSeparator < 0) {
+            whatSeparator = line.length();
+        } else {
+            try {
+                what = Integer.parseInt(line.substring(whatSeparator + 2));
+            } catch (NumberFormatException e) {
+                // not the format of the platform's Looper; leave it at 0
+            }
+        }
+
+        String target;
+        int callbackStart;
+        final int targetStart = DISPATCHING.length() + HANDLER.length();
+        final int targetEnd = line.indexOf(") {", targetStart);
+        if (line.startsWith(HANDLER, DISPATCHING.length()) && targetEnd >= 0) {
+            target = line.substring(targetStart, targetEnd);
+            callbackStart = line.indexOf("} ", targetEnd) + 2;
+        } else {
+            // a Handler subclass that overrides toString()
+            callbackStart = line.lastIndexOf(' ', whatSeparator - 1) + 1;
+            target = line.substring(DISPATCHING.length(), Math.max(DISPATCHING.length(), callbackStart - 1));
+        }
+
+        String callback = line.substring(callbackStart, whatSeparator);
+        if ("null".equals(callback)) {
+            callback = "";
+        } else {
+            final int hash = callback.indexOf('@');
+            if (hash >= 0) {
+                callback = callback.substring(0, hash);
+            }
+        }
+        return LooperDispatchEvent.create(target, callback, what, startMillis, endMillis);
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+import android.os.Handler;
+import android.os.SystemClock;
+
+class OnSubscribeLooperStall implements Observable.OnSubscribe<LooperStallEvent> {
+
+    private final Handler handler;
+    private final long thresholdMillis;
+    private final boolean sampleStackTrace;
+    private final Scheduler scheduler;
+
+    public OnSubscribeLooperStall(Handler handler, long thresholdMillis, boolean sampleStackTrace, Scheduler scheduler) {
+        this.handler = handler;
+        this.thresholdMillis = thresholdMillis;
+        this.sampleStackTrace = sampleStackTrace;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void call(final Subscriber<? super LooperStallEvent> subscriber) {
+        final Scheduler.Worker worker = scheduler.createWorker();
+        final Heartbeat heartbeat = new Heartbeat(subscriber);
+
+        subscriber.add(worker);
+        subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                handler.removeCallbacks(heartbeat);
+            }
+        }));
+
+        // check twice per threshold, so a stall is reported at most half a threshold late
+        final long intervalMillis = Math.max(1, thresholdMillis / 2);
+        worker.schedulePeriodically(heartbeat, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A message posted to the Looper whenever the previous one has been handled. The watchdog
+     * checks on it periodically and reports a stall once it has been waiting past the threshold.
+     */
+    private final class Heartbeat implements Runnable, Action0 {
+
+        private static final long HANDLED = -1;
+
+        private final Subscriber<? super LooperStallEvent> subscriber;
+
+        // uptime at which the pending heartbeat was posted, or HANDLED
+        private volatile long postedAt = HANDLED;
+
+        // only touched by the watchdog
+        private boolean reported;
+
+        Heartbeat(Subscriber<? super LooperStallEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void run() {
+            postedAt = HANDLED;
+        }
+
+        @Override
+        public void call() {
+            final long now = SystemClock.uptimeMillis();
+            final long postedAt = this.postedAt;
+            if (postedAt == HANDLED) {
+                reported = false;
+                this.postedAt = now;
+                handler.post(this);
+                return;
+            }
+
+            final long stallMillis = now - postedAt;
+            if (stallMillis >= thresholdMillis && !reported) {
+                reported = true;
+                subscriber.onNext(LooperStallEvent.create(stallMillis, thresholdMillis, sampleStackTrace()));
+            }
+        }
+
+        private List<StackTraceElement> sampleStackTrace() {
+            final Thread thread = sampleStackTrace ? handler.getLooper().getThread() : null;
+            if (thread == null) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(Arrays.asList(thread.getStackTrace()));
+        }
+    }
+}
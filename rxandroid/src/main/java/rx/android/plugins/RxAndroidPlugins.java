@@ -0,0 +1,74 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.plugins;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry for plugin implementations that allows global override of RxAndroid behavior, in the
+ * same way {@link rx.plugins.RxJavaPlugins} does for RxJava.
+ * <p>
+ * Plugins are registered once, typically when the application starts, before any of the
+ * behavior they change has been used.
+ */
+public class RxAndroidPlugins {
+
+    private static final RxAndroidPlugins INSTANCE = new RxAndroidPlugins();
+
+    private final AtomicReference<RxAndroidSchedulersHook> schedulersHook =
+            new AtomicReference<RxAndroidSchedulersHook>();
+
+    public static RxAndroidPlugins getInstance() {
+        return INSTANCE;
+    }
+
+    /* Visible for testing */
+    RxAndroidPlugins() {
+    }
+
+    /* Visible for testing */
+    void reset() {
+        schedulersHook.set(null);
+    }
+
+    /**
+     * Retrieves the instance of {@link RxAndroidSchedulersHook} to use, which is the default
+     * instance unless one has been registered.
+     *
+     * @return {@link RxAndroidSchedulersHook} implementation to use
+     */
+    public RxAndroidSchedulersHook getSchedulersHook() {
+        final RxAndroidSchedulersHook hook = schedulersHook.get();
+        if (hook != null) {
+            return hook;
+        }
+        // use the default, unless another thread has registered a hook in the meantime
+        schedulersHook.compareAndSet(null, RxAndroidSchedulersHook.getDefaultInstance());
+        return schedulersHook.get();
+    }
+
+    /**
+     * Registers an {@link RxAndroidSchedulersHook} implementation as a global override of the
+     * schedulers returned by {@link rx.android.schedulers.AndroidSchedulers}.
+     *
+     * @param impl {@link RxAndroidSchedulersHook} implementation
+     * @throws IllegalStateException if called more than once or after the default was
+     *                               initialized, because a scheduler has already been used
+     */
+    public void registerSchedulersHook(RxAndroidSchedulersHook impl) {
+        if (!schedulersHook.compareAndSet(null, impl)) {
+            throw new IllegalStateException("Another strategy was already registered: " + schedulersHook.get());
+        }
+    }
+}
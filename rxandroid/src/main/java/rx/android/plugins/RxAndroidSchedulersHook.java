@@ -0,0 +1,59 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.plugins;
+
+import rx.Scheduler;
+import rx.android.schedulers.AndroidSchedulers;
+
+/**
+ * Hook that {@link AndroidSchedulers} passes its schedulers through, so they can be decorated,
+ * for example to add timing or tracing, or replaced.
+ * <p>
+ * The default implementation returns the given schedulers unchanged. Subclasses override the
+ * methods for the schedulers they want to change and register an instance through
+ * {@link RxAndroidPlugins#registerSchedulersHook(RxAndroidSchedulersHook)}. The methods are
+ * called every time a scheduler is requested, so they should not create a new scheduler on
+ * every call.
+ */
+public class RxAndroidSchedulersHook {
+
+    private static final RxAndroidSchedulersHook DEFAULT_INSTANCE = new RxAndroidSchedulersHook();
+
+    public static RxAndroidSchedulersHook getDefaultInstance() {
+        return DEFAULT_INSTANCE;
+    }
+
+    protected RxAndroidSchedulersHook() {
+    }
+
+    /**
+     * Invoked by {@link AndroidSchedulers#mainThread()}.
+     *
+     * @param scheduler the main thread scheduler RxAndroid would use
+     * @return the scheduler to use instead
+     */
+    public Scheduler onMainThreadScheduler(Scheduler scheduler) {
+        return scheduler;
+    }
+
+    /**
+     * Invoked by the {@code AndroidSchedulers.handlerThread} methods.
+     *
+     * @param scheduler the scheduler RxAndroid created for the given {@link android.os.Handler}
+     * @return the scheduler to use instead
+     */
+    public Scheduler onHandlerThreadScheduler(Scheduler scheduler) {
+        return scheduler;
+    }
+}
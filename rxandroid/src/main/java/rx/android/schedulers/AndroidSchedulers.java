@@ -13,7 +13,10 @@
  */
 package rx.android.schedulers;
 
+import java.util.concurrent.TimeUnit;
+
 import rx.Scheduler;
+import rx.android.plugins.RxAndroidPlugins;
 import android.os.Handler;
 import android.os.Looper;
 
@@ -28,21 +31,196 @@ public class AndroidSchedulers {
     private static final Scheduler MAIN_THREAD_SCHEDULER =
             new HandlerThreadScheduler(new Handler(Looper.getMainLooper()));
 
+    private static final Scheduler MAIN_THREAD_IMMEDIATE_SCHEDULER =
+            new HandlerThreadScheduler(new Handler(Looper.getMainLooper()), true, true);
+
+    private static final Scheduler MAIN_THREAD_ASYNC_SCHEDULER =
+            new HandlerThreadScheduler(new AsyncHandler(Looper.getMainLooper()));
+
+    private static final PriorityScheduler MAIN_THREAD_PRIORITY_SCHEDULER =
+            new PriorityScheduler(new Handler(Looper.getMainLooper()));
+
+    private static final IdleScheduler MAIN_THREAD_IDLE_SCHEDULER =
+            new IdleScheduler(new Handler(Looper.getMainLooper()));
+
+    private static final Scheduler FRAME_SCHEDULER =
+            new FrameScheduler(new Handler(Looper.getMainLooper()));
+
     /**
      * {@link Scheduler} which uses the provided {@link Handler} to execute an action
+     * <p>
+     * This and the other {@code handlerThread} methods pass the scheduler through
+     * {@link rx.android.plugins.RxAndroidSchedulersHook#onHandlerThreadScheduler(Scheduler)} of the
+     * registered hook, if any.
+     *
      * @param handler The handler that will be used when executing the action
      * @return A handler based scheduler
      */
     public static Scheduler handlerThread(final Handler handler) {
-        return new HandlerThreadScheduler(handler);
+        return RxAndroidPlugins.getInstance().getSchedulersHook()
+                .onHandlerThreadScheduler(new HandlerThreadScheduler(handler));
+    }
+
+    /**
+     * {@link Scheduler} which uses the provided {@link Handler} to execute an action
+     * <p>
+     * When {@code batched} is true, actions that a worker schedules without a delay are drained
+     * together from a single {@link Handler} message instead of being posted one at a time.
+     *
+     * @param handler The handler that will be used when executing the action
+     * @param batched whether immediate actions should be drained from a single message
+     * @return A handler based scheduler
+     */
+    public static Scheduler handlerThread(final Handler handler, final boolean batched) {
+        return RxAndroidPlugins.getInstance().getSchedulersHook()
+                .onHandlerThreadScheduler(new HandlerThreadScheduler(handler, batched));
+    }
+
+    /**
+     * {@link Scheduler} which uses the provided {@link Handler} to execute an action and records
+     * how long actions wait to run and how long they run into {@code metrics}.
+     *
+     * @param handler The handler that will be used when executing the action
+     * @param metrics The metrics to record into
+     * @return A handler based scheduler
+     */
+    public static Scheduler handlerThread(final Handler handler, final SchedulerMetrics metrics) {
+        return RxAndroidPlugins.getInstance().getSchedulersHook()
+                .onHandlerThreadScheduler(new HandlerThreadScheduler(handler, false, metrics));
+    }
+
+    /**
+     * {@link Scheduler} which executes actions on a pool of {@link android.os.HandlerThread}s it
+     * starts and quits on its own.
+     * <p>
+     * Every worker runs all of its actions on one thread of the pool. Threads are added while all
+     * running ones have a backlog, up to {@code maxThreads}, and quit after serving no worker
+     * for {@code keepAlive}.
+     *
+     * @param name prefix of the names of the pool's threads
+     * @param maxThreads the maximum number of threads the pool may run at the same time
+     * @param keepAlive the time after which a thread that serves no worker quits
+     * @param unit the unit of {@code keepAlive}
+     * @return A scheduler based on a pool of handler threads
+     */
+    public static HandlerThreadPoolScheduler handlerThreadPool(String name, int maxThreads, long keepAlive, TimeUnit unit) {
+        return new HandlerThreadPoolScheduler(name, maxThreads, keepAlive, unit);
     }
 
     /**
      * {@link Scheduler} which will execute an action on the main Android UI thread.
+     * <p>
+     * The scheduler is passed through {@link rx.android.plugins.RxAndroidSchedulersHook#onMainThreadScheduler(Scheduler)}
+     * of the registered hook, if any.
      *
      * @return A Main {@link Looper} based scheduler
      */
     public static Scheduler mainThread() {
-        return MAIN_THREAD_SCHEDULER;
+        return RxAndroidPlugins.getInstance().getSchedulersHook().onMainThreadScheduler(MAIN_THREAD_SCHEDULER);
+    }
+
+    /**
+     * {@link Scheduler} which will execute an action on the main Android UI thread with the given
+     * priority.
+     * <p>
+     * The schedulers of all priorities share a single queue drain on the main {@link Looper},
+     * which always runs the queued action of the highest priority next. Actions of
+     * {@link Priority#BACKGROUND} priority run one per message, so they do not delay input
+     * events or frames either. Actions of the same priority run in the order they were queued.
+     *
+     * @param priority the priority the scheduler's actions run with
+     * @return A Main {@link Looper} based scheduler for the given priority
+     */
+    public static Scheduler mainThread(Priority priority) {
+        return MAIN_THREAD_PRIORITY_SCHEDULER.lane(priority);
+    }
+
+    /**
+     * {@link Scheduler} which will execute an action on the main Android UI thread, without posting
+     * it to the main {@link Looper} when that is not necessary.
+     * <p>
+     * Actions that are scheduled from the main thread run synchronously, unless the worker still
+     * has actions queued up or is running one, in which case they run after those in a later
+     * message. Actions scheduled from other threads, or with a delay, are posted like they are
+     * with {@link #mainThread()}.
+     *
+     * @return A Main {@link Looper} based scheduler executing in place when already on the main thread
+     */
+    public static Scheduler mainThreadImmediate() {
+        return MAIN_THREAD_IMMEDIATE_SCHEDULER;
+    }
+
+    /**
+     * {@link Scheduler} which will execute an action on the main Android UI thread using
+     * asynchronous messages.
+     * <p>
+     * Asynchronous messages are not held back by the synchronization barrier that is in place
+     * while the view hierarchy waits to be measured, laid out and drawn, so actions can run
+     * before a pending traversal rather than after it. Use this for latency critical work only;
+     * the actions are no longer ordered with respect to view traversals. On platforms that do not
+     * support asynchronous messages this behaves like {@link #mainThread()}.
+     *
+     * @return A Main {@link Looper} based scheduler posting asynchronous messages
+     */
+    public static Scheduler mainThreadAsync() {
+        return MAIN_THREAD_ASYNC_SCHEDULER;
+    }
+
+    /**
+     * {@link Scheduler} which will execute an action on the main Android UI thread once the main
+     * {@link Looper} has no other messages to handle.
+     * <p>
+     * Use this for deferrable work such as warming caches, which should not compete with input
+     * handling and frames. One action runs each time the {@link Looper} goes idle, so an action
+     * may wait for as long as the main thread stays busy.
+     *
+     * @return A Main {@link Looper} based scheduler running actions in idle time
+     */
+    public static IdleScheduler mainThreadIdle() {
+        return MAIN_THREAD_IDLE_SCHEDULER;
+    }
+
+    /**
+     * {@link Scheduler} which will execute an action on the main Android UI thread once the main
+     * {@link Looper} has no other messages to handle, or once the action has been deferred for
+     * {@code maxDeferral}, whichever comes first. Every call returns a new scheduler with its
+     * own queue and statistics.
+     *
+     * @param maxDeferral the time after which a queued action runs even if the main thread is busy
+     * @param unit the unit of {@code maxDeferral}
+     * @return A Main {@link Looper} based scheduler running actions in idle time
+     */
+    public static IdleScheduler mainThreadIdle(long maxDeferral, TimeUnit unit) {
+        return new IdleScheduler(new Handler(Looper.getMainLooper()), maxDeferral, unit);
+    }
+
+    /**
+     * {@link Scheduler} which will execute actions on the main Android UI thread in time slices.
+     * <p>
+     * Queued actions run until {@code budget} is spent, after which the remaining ones continue
+     * in a new message, so a large backlog does not keep the main {@link Looper} from drawing
+     * frames or handling input. A budget of a few milliseconds leaves most of a 16ms frame to the
+     * view system. Every call returns a new scheduler with its own queue and counters.
+     *
+     * @param budget the time a single slice may spend running actions
+     * @param unit the unit of {@code budget}
+     * @return A time sliced, main {@link Looper} based scheduler
+     */
+    public static TimeSlicedScheduler mainThreadTimeSliced(long budget, TimeUnit unit) {
+        return new TimeSlicedScheduler(new Handler(Looper.getMainLooper()), budget, unit);
+    }
+
+    /**
+     * {@link Scheduler} which will execute an action on the main Android UI thread at the start
+     * of the next display frame.
+     * <p>
+     * Actions scheduled from any number of workers are run together once per frame, so
+     * updates from many sequences cause a single layout pass. Actions scheduled while a frame
+     * is being processed run in the following frame.
+     *
+     * @return A frame aligned, main {@link Looper} based scheduler
+     */
+    public static Scheduler frame() {
+        return FRAME_SCHEDULER;
     }
 }
@@ -0,0 +1,71 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.lang.reflect.Method;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+/**
+ * {@link Handler} that marks every message it sends as asynchronous, so they are not held back
+ * by the synchronization barrier the view system installs while a traversal is pending.
+ * <p>
+ * {@code Message.setAsynchronous} is public from API 22 and exists as a hidden method since
+ * API 16. It is looked up through reflection; where it is missing, messages are sent as
+ * ordinary synchronous messages.
+ */
+final class AsyncHandler extends Handler {
+
+    private static final Method SET_ASYNCHRONOUS;
+    private static final Object[] ASYNCHRONOUS = { Boolean.TRUE };
+
+    static {
+        Method setAsynchronous = null;
+        try {
+            setAsynchronous = Message.class.getMethod("setAsynchronous", boolean.class);
+        } catch (Exception e) {
+        }
+
+        SET_ASYNCHRONOUS = setAsynchronous;
+    }
+
+    /**
+     * @return whether messages sent through this handler can be marked asynchronous on this platform
+     */
+    static boolean isSupported() {
+        return SET_ASYNCHRONOUS != null;
+    }
+
+    AsyncHandler(Looper looper) {
+        super(looper);
+    }
+
+    @Override
+    public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+        markAsynchronous(msg);
+        return super.sendMessageAtTime(msg, uptimeMillis);
+    }
+
+    private static void markAsynchronous(Message msg) {
+        if (SET_ASYNCHRONOUS != null) {
+            try {
+                SET_ASYNCHRONOUS.invoke(msg, ASYNCHRONOUS);
+            } catch (Exception e) {
+                // the message is sent as a synchronous one
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.internal.schedulers.ScheduledAction;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Schedules actions to run together at the start of the next display frame.
+ * <p>
+ * All workers of a scheduler share a single queue which is drained from a
+ * {@code Choreographer} frame callback, so updates coming from many streams are applied
+ * in the same frame. Actions that are scheduled while a frame is being drained run in the
+ * following frame. On platforms without {@code Choreographer} the queue is drained from
+ * a {@link Handler} message aligned to the next 16ms boundary instead.
+ */
+final class FrameScheduler extends Scheduler {
+
+    private static final long FRAME_INTERVAL_MILLIS = 16;
+
+    private final Handler handler;
+    private final FrameCallback frameCallback;
+
+    private final Queue<ScheduledAction> queue = new ConcurrentLinkedQueue<ScheduledAction>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final QueueWorker.ActionQueue frameQueue = new QueueWorker.ActionQueue() {
+        @Override
+        public void enqueue(ScheduledAction scheduledAction) {
+            FrameScheduler.this.enqueue(scheduledAction);
+        }
+    };
+
+    private final Runnable doFrame = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    FrameScheduler(Handler handler) {
+        this(handler, FrameCallback.isAvailable());
+    }
+
+    /* Visible for testing */
+    FrameScheduler(Handler handler, boolean useChoreographer) {
+        this.handler = handler;
+        this.frameCallback = useChoreographer ? new FrameCallback(handler, doFrame) : null;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new QueueWorker(handler, frameQueue);
+    }
+
+    private void enqueue(ScheduledAction scheduledAction) {
+        queue.offer(scheduledAction);
+        if (pending.getAndIncrement() == 0) {
+            requestFrame();
+        }
+    }
+
+    private void requestFrame() {
+        if (frameCallback != null) {
+            frameCallback.post();
+        } else {
+            final long now = SystemClock.uptimeMillis();
+            handler.postAtTime(doFrame, now - now % FRAME_INTERVAL_MILLIS + FRAME_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Runs the actions that were queued before the frame started.
+     */
+    private void drain() {
+        final int count = pending.get();
+        for (int i = 0; i < count; i++) {
+            final ScheduledAction scheduledAction = queue.poll();
+            if (scheduledAction != null && !scheduledAction.isUnsubscribed()) {
+                scheduledAction.run();
+            }
+        }
+        if (pending.addAndGet(-count) > 0) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * Posts a {@code Choreographer.FrameCallback} through reflection, since the class is not
+     * available before Jelly Bean and the library compiles against Ice Cream Sandwich.
+     * <p>
+     * The reflective calls are not free: every frame the proxy allocates an argument array and
+     * boxes the frame time before {@link #invoke(Object, Method, Object[])} is reached, and
+     * posting the callback goes through {@link Method#invoke}. The methods are looked up once,
+     * the argument array for posting is reused, and after the first frame a frame is recognized
+     * by the identity of the proxy's method alone, which keeps the cost at a couple of small
+     * allocations per frame rather than one per queued action.
+     */
+    private static final class FrameCallback implements InvocationHandler {
+
+        private static final Class<?> CHOREOGRAPHER_CLASS;
+        private static final Class<?> FRAME_CALLBACK_CLASS;
+        private static final Method GET_INSTANCE;
+        private static final Method POST_FRAME_CALLBACK;
+
+        static {
+            Class<?> choreographerClass = null;
+            Class<?> frameCallbackClass = null;
+            Method getInstance = null;
+            Method postFrameCallback = null;
+            try {
+                choreographerClass = Class.forName("android.view.Choreographer");
+                frameCallbackClass = Class.forName("android.view.Choreographer$FrameCallback");
+                getInstance = choreographerClass.getMethod("getInstance");
+                postFrameCallback = choreographerClass.getMethod("postFrameCallback", frameCallbackClass);
+            } catch (Exception e) {
+                choreographerClass = null;
+            }
+
+            CHOREOGRAPHER_CLASS = choreographerClass;
+            FRAME_CALLBACK_CLASS = frameCallbackClass;
+            GET_INSTANCE = getInstance;
+            POST_FRAME_CALLBACK = postFrameCallback;
+        }
+
+        static boolean isAvailable() {
+            return CHOREOGRAPHER_CLASS != null;
+        }
+
+        private final Handler handler;
+        private final Runnable doFrame;
+        private final Object callback;
+        // the arguments of postFrameCallback, reused for every frame
+        private final Object[] postArgs;
+
+        // the proxy's own doFrame method, which it hands in for every frame; only touched on the
+        // handler's thread
+        private Method doFrameMethod;
+
+        // Choreographer instances are bound to the thread they are obtained from
+        private volatile Object choreographer;
+
+        private final Runnable postFromLooper = new Runnable() {
+            @Override
+            public void run() {
+                post();
+            }
+        };
+
+        FrameCallback(Handler handler, Runnable doFrame) {
+            this.handler = handler;
+            this.doFrame = doFrame;
+            this.callback = Proxy.newProxyInstance(FRAME_CALLBACK_CLASS.getClassLoader(),
+                    new Class<?>[]{FRAME_CALLBACK_CLASS}, this);
+            this.postArgs = new Object[]{callback};
+        }
+
+        void post() {
+            Object choreographer = this.choreographer;
+            if (choreographer == null) {
+                if (Looper.myLooper() != handler.getLooper()) {
+                    handler.post(postFromLooper);
+                    return;
+                }
+                choreographer = this.choreographer = call(GET_INSTANCE, null, null);
+            }
+            call(POST_FRAME_CALLBACK, choreographer, postArgs);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method == doFrameMethod) {
+                doFrame.run();
+                return null;
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return "FrameCallback@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+            doFrameMethod = method;
+            doFrame.run();
+            return null;
+        }
+
+        private static Object call(Method method, Object target, Object[] args) {
+            try {
+                return method.invoke(target, args);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to call " + method, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.internal.schedulers.ScheduledAction;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * Schedules actions on a bounded pool of {@link HandlerThread}s owned by the scheduler.
+ * <p>
+ * Every worker sticks to the thread it was assigned when it was created, so its actions run
+ * in order and on the same thread. New workers go to the thread with the smallest backlog of
+ * actions waiting to run, and to the one serving the fewest workers among equally loaded
+ * threads. A new thread is started when there is none yet, or when every running thread has a
+ * backlog and the pool has not reached its maximum size. Threads that have not served a worker
+ * for the keep alive time quit; they are started again on demand.
+ */
+public class HandlerThreadPoolScheduler extends Scheduler {
+
+    private final String name;
+    private final int maxThreads;
+    private final long keepAliveMillis;
+
+    // guarded by this
+    private final List<PooledLooper> loopers = new ArrayList<PooledLooper>();
+    private int largestPoolSize;
+    private int threadCount;
+
+    /**
+     * Constructs a {@link HandlerThreadPoolScheduler}
+     *
+     * @param name
+     *            prefix of the names of the pool's threads
+     * @param maxThreads
+     *            the maximum number of threads the pool may run at the same time
+     * @param keepAlive
+     *            the time after which a thread that serves no worker quits
+     * @param unit
+     *            the unit of {@code keepAlive}
+     */
+    public HandlerThreadPoolScheduler(String name, int maxThreads, long keepAlive, TimeUnit unit) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("Pool must allow at least one thread");
+        }
+        if (keepAlive < 0) {
+            throw new IllegalArgumentException("Keep alive time must not be negative");
+        }
+        this.name = name;
+        this.maxThreads = maxThreads;
+        this.keepAliveMillis = unit.toMillis(keepAlive);
+    }
+
+    @Override
+    public Worker createWorker() {
+        final PooledLooper looper;
+        synchronized (this) {
+            looper = assign();
+            looper.workers++;
+        }
+        final Handler handler = looper.handler();
+        if (handler != null) {
+            handler.removeCallbacks(looper);
+        }
+        return new InnerHandlerThreadPoolScheduler(looper);
+    }
+
+    /**
+     * @return the number of threads currently running in the pool
+     */
+    public synchronized int getPoolSize() {
+        return loopers.size();
+    }
+
+    /**
+     * @return the largest number of threads that have been running in the pool at the same time
+     */
+    public synchronized int getLargestPoolSize() {
+        return largestPoolSize;
+    }
+
+    /**
+     * @return the number of actions that are due but have not run yet, over all threads
+     */
+    public synchronized int getBacklog() {
+        int backlog = 0;
+        for (PooledLooper looper : loopers) {
+            backlog += looper.backlog.get();
+        }
+        return backlog;
+    }
+
+    /**
+     * Quits all threads of the pool. Actions that have not run yet are dropped, and existing
+     * workers no longer schedule any. Workers created afterwards start new threads.
+     */
+    public void shutdown() {
+        final List<PooledLooper> quitting;
+        synchronized (this) {
+            quitting = new ArrayList<PooledLooper>(loopers);
+            loopers.clear();
+        }
+        for (PooledLooper looper : quitting) {
+            final Handler handler = looper.shutDown();
+            if (handler != null) {
+                quit(handler);
+            }
+        }
+    }
+
+    /* Visible for testing */
+    Handler startThread(String threadName) {
+        final HandlerThread thread = new HandlerThread(threadName);
+        thread.start();
+        return new Handler(thread.getLooper());
+    }
+
+    /* Visible for testing */
+    void quit(Handler handler) {
+        handler.getLooper().quit();
+    }
+
+    // called with the lock held
+    private PooledLooper assign() {
+        PooledLooper leastLoaded = null;
+        for (PooledLooper looper : loopers) {
+            if (leastLoaded == null || looper.isLessLoadedThan(leastLoaded)) {
+                leastLoaded = looper;
+            }
+        }
+        if (leastLoaded != null && (leastLoaded.backlog.get() == 0 || loopers.size() == maxThreads)) {
+            return leastLoaded;
+        }
+
+        // the thread itself is started by the worker outside the lock, see PooledLooper#handler()
+        final PooledLooper started = new PooledLooper(name + "-" + ++threadCount);
+        loopers.add(started);
+        largestPoolSize = Math.max(largestPoolSize, loopers.size());
+        return started;
+    }
+
+    private void release(PooledLooper looper) {
+        final boolean idle;
+        synchronized (this) {
+            idle = --looper.workers == 0;
+        }
+        if (idle) {
+            final Handler handler = looper.handler();
+            if (handler != null) {
+                handler.removeCallbacks(looper);
+                handler.postDelayed(looper, keepAliveMillis);
+            }
+        }
+    }
+
+    /**
+     * A thread of the pool. Runs on its own thread once it has served no worker for the keep
+     * alive time, and quits unless a worker has been assigned in the meantime.
+     */
+    private final class PooledLooper implements Runnable {
+
+        private final String threadName;
+        private volatile Handler handler;
+        // set at most once, with the looper's lock held
+        private volatile boolean shutDown;
+        private final AtomicInteger backlog = new AtomicInteger();
+
+        // guarded by the scheduler
+        private int workers;
+
+        PooledLooper(String threadName) {
+            this.threadName = threadName;
+        }
+
+        /**
+         * Returns the handler of the thread, starting the thread on the first call. Starting it
+         * waits for its {@link android.os.Looper}, so this is never called with the scheduler's
+         * lock held; callers that need the same thread meanwhile only wait for this one.
+         *
+         * @return the handler, or {@code null} once the thread has been shut down
+         */
+        Handler handler() {
+            if (shutDown) {
+                return null;
+            }
+            Handler handler = this.handler;
+            if (handler == null) {
+                synchronized (this) {
+                    if (shutDown) {
+                        return null;
+                    }
+                    handler = this.handler;
+                    if (handler == null) {
+                        handler = startThread(threadName);
+                        this.handler = handler;
+                    }
+                }
+            }
+            return handler;
+        }
+
+        /**
+         * Marks the thread as shut down, so that it is not started anymore.
+         *
+         * @return the handler of the thread to quit, or {@code null} if it was never started
+         */
+        synchronized Handler shutDown() {
+            shutDown = true;
+            return handler;
+        }
+
+        boolean isLessLoadedThan(PooledLooper other) {
+            final int backlog = this.backlog.get();
+            final int otherBacklog = other.backlog.get();
+            return backlog < otherBacklog || backlog == otherBacklog && workers < other.workers;
+        }
+
+        @Override
+        public void run() {
+            synchronized (HandlerThreadPoolScheduler.this) {
+                if (workers > 0 || !loopers.remove(this)) {
+                    return;
+                }
+            }
+            quit(shutDown());
+        }
+    }
+
+    private class InnerHandlerThreadPoolScheduler extends Worker {
+
+        private final PooledLooper looper;
+        private final CompositeSubscription compositeSubscription = new CompositeSubscription();
+        // makes sure the worker is released from its thread only once
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        InnerHandlerThreadPoolScheduler(PooledLooper looper) {
+            this.looper = looper;
+        }
+
+        @Override
+        public void unsubscribe() {
+            compositeSubscription.unsubscribe();
+            if (released.compareAndSet(false, true)) {
+                release(looper);
+            }
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return compositeSubscription.isUnsubscribed();
+        }
+
+        @Override
+        public Subscription schedule(final Action0 action, long delayTime, TimeUnit unit) {
+            // a worker that outlived the thread it was assigned has nowhere to run its actions
+            final Handler handler = looper.handler();
+            if (handler == null || compositeSubscription.isUnsubscribed()) {
+                return Subscriptions.empty();
+            }
+            final ScheduledAction scheduledAction = new ScheduledAction(action);
+            scheduledAction.addParent(compositeSubscription);
+            compositeSubscription.add(scheduledAction);
+
+            // actions without a delay count towards the backlog until they have run or are cancelled
+            final boolean due = delayTime <= 0;
+            if (due) {
+                looper.backlog.incrementAndGet();
+            }
+            scheduledAction.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    handler.removeCallbacks(scheduledAction);
+                    if (due) {
+                        looper.backlog.decrementAndGet();
+                    }
+                }
+            }));
+
+            handler.postDelayed(scheduledAction, unit.toMillis(delayTime));
+
+            return scheduledAction;
+        }
+
+        @Override
+        public Subscription schedule(final Action0 action) {
+            return schedule(action, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -14,14 +14,19 @@
 package rx.android.schedulers;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import rx.Scheduler;
 import rx.Subscription;
+import rx.exceptions.OnErrorNotImplementedException;
 import rx.functions.Action0;
-import rx.internal.schedulers.ScheduledAction;
-import rx.subscriptions.CompositeSubscription;
+import rx.plugins.RxJavaPlugins;
 import rx.subscriptions.Subscriptions;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 /**
  * Schedules actions to run on an Android Handler thread.
@@ -29,6 +34,9 @@ import android.os.Handler;
 public class HandlerThreadScheduler extends Scheduler {
 
     private final Handler handler;
+    private final boolean batched;
+    private final boolean immediate;
+    private final SchedulerMetrics metrics;
 
     /**
      * Constructs a {@link HandlerThreadScheduler} using the given {@link Handler}
@@ -37,55 +45,437 @@ public class HandlerThreadScheduler extends Scheduler {
      *            {@link Handler} to use when scheduling actions
      */
     public HandlerThreadScheduler(Handler handler) {
+        this(handler, false);
+    }
+
+    /**
+     * Constructs a {@link HandlerThreadScheduler} using the given {@link Handler}
+     * <p>
+     * In batched mode, actions scheduled without a delay are not posted to the {@link Handler}
+     * one by one. Instead every worker collects them in a lock-free queue and posts a single
+     * message which runs all actions that were queued up by the time it executes.
+     *
+     * @param handler
+     *            {@link Handler} to use when scheduling actions
+     * @param batched
+     *            whether immediate actions of a worker should be drained from a single message
+     */
+    public HandlerThreadScheduler(Handler handler, boolean batched) {
+        this(handler, batched, false);
+    }
+
+    /**
+     * Constructs a batched {@link HandlerThreadScheduler} which, when {@code immediate} is set,
+     * runs actions right away if they are scheduled from the {@link Handler}'s own thread while
+     * nothing else is queued up in the worker. Otherwise actions are queued behind the pending
+     * ones, so they always execute in the order they were scheduled.
+     */
+    HandlerThreadScheduler(Handler handler, boolean batched, boolean immediate) {
+        this(handler, batched, immediate, null);
+    }
+
+    /**
+     * Constructs a {@link HandlerThreadScheduler} using the given {@link Handler}, which records
+     * how long its actions wait and run into the given {@link SchedulerMetrics}.
+     *
+     * @param handler
+     *            {@link Handler} to use when scheduling actions
+     * @param batched
+     *            whether immediate actions of a worker should be drained from a single message
+     * @param metrics
+     *            the metrics to record into
+     */
+    public HandlerThreadScheduler(Handler handler, boolean batched, SchedulerMetrics metrics) {
+        this(handler, batched, false, metrics);
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics must be given");
+        }
+    }
+
+    private HandlerThreadScheduler(Handler handler, boolean batched, boolean immediate, SchedulerMetrics metrics) {
         this.handler = handler;
+        this.batched = batched || immediate;
+        this.immediate = immediate;
+        this.metrics = metrics;
     }
 
     @Override
     public Worker createWorker() {
-        return new InnerHandlerThreadScheduler(handler);
+        return new InnerHandlerThreadScheduler(handler, batched, immediate, metrics);
     }
 
+    /**
+     * A worker whose tasks are posted as individual messages carrying the worker as their token, so
+     * a task is removed from the {@link Handler}'s queue with a single call when it is unsubscribed,
+     * and all of them together when the worker is.
+     */
     private static class InnerHandlerThreadScheduler extends Worker {
 
+        private static final AtomicReferenceFieldUpdater<InnerHandlerThreadScheduler, ScheduledTask> TAIL_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(InnerHandlerThreadScheduler.class, ScheduledTask.class, "tail");
+
         private final Handler handler;
+        private final boolean batched;
+        private final boolean immediate;
+        private final SchedulerMetrics metrics;
 
-        private final CompositeSubscription compositeSubscription = new CompositeSubscription();
+        private volatile boolean unsubscribed;
 
-        public InnerHandlerThreadScheduler(Handler handler) {
+        // the tasks that have neither run nor been cancelled, only counted when recording metrics
+        private final AtomicInteger pending = new AtomicInteger();
+
+        // intrusive queue of batched tasks: producers swap the tail, the handler thread polls the head
+        private volatile ScheduledTask tail;
+        private ScheduledTask head;
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final Runnable drain = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+
+        public InnerHandlerThreadScheduler(Handler handler, boolean batched, boolean immediate, SchedulerMetrics metrics) {
             this.handler = handler;
+            this.batched = batched;
+            this.immediate = immediate;
+            this.metrics = metrics;
+            if (batched) {
+                head = tail = new ScheduledTask(this, null);
+            }
         }
 
         @Override
         public void unsubscribe() {
-            compositeSubscription.unsubscribe();
+            if (unsubscribed) {
+                return;
+            }
+            unsubscribed = true;
+
+            // every message of this worker carries the worker itself as its token
+            handler.removeCallbacksAndMessages(this);
+            if (metrics != null) {
+                for (int i = pending.getAndSet(0); i > 0; i--) {
+                    metrics.onCancelled();
+                }
+            }
         }
 
         @Override
         public boolean isUnsubscribed() {
-            return compositeSubscription.isUnsubscribed();
+            return unsubscribed;
         }
 
         @Override
         public Subscription schedule(final Action0 action, long delayTime, TimeUnit unit) {
-            final ScheduledAction scheduledAction = new ScheduledAction(action);
-            scheduledAction.add(Subscriptions.create(new Action0() {
-                @Override
-                public void call() {
-                    handler.removeCallbacks(scheduledAction);
+            if (unsubscribed) {
+                return Subscriptions.empty();
+            }
+            final ScheduledTask task = new ScheduledTask(this, action);
+            final long delayMillis = Math.max(0, unit.toMillis(delayTime));
+            if (metrics != null) {
+                metrics.onScheduled();
+                pending.incrementAndGet();
+                task.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            }
+            if (batched && delayMillis == 0) {
+                enqueue(task);
+            } else {
+                post(task, delayMillis);
+            }
+            return task;
+        }
+
+        @Override
+        public Subscription schedule(final Action0 action) {
+            return schedule(action, 0, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Runs the action at fixed deadlines derived from the time of this call, reusing a single
+         * task for all runs. Runs that were missed because the thread was busy are skipped rather
+         * than caught up on, so the action stays in phase with its period.
+         */
+        @Override
+        public Subscription schedulePeriodically(final Action0 action, long initialDelay, long period, TimeUnit unit) {
+            final long periodNanos = unit.toNanos(period);
+            if (periodNanos <= 0) {
+                return super.schedulePeriodically(action, initialDelay, period, unit);
+            }
+            if (unsubscribed) {
+                return Subscriptions.empty();
+            }
+            final PeriodicTask task = new PeriodicTask(this, action, periodNanos);
+            final long now = SystemClock.uptimeMillis();
+            task.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(now) + Math.max(0, unit.toNanos(initialDelay));
+            postPeriodic(task, now);
+            return task;
+        }
+
+        /**
+         * Posts the next run of a periodic task for its deadline, at the earliest millisecond that
+         * is not before it. The next run is counted as pending before a running task can be
+         * unsubscribed again, so that whichever side wins accounts for it.
+         */
+        void postPeriodic(PeriodicTask task, long now) {
+            final long dueMillis = (task.deadlineNanos + 999999) / 1000000;
+            if (metrics != null) {
+                pending.incrementAndGet();
+            }
+            if (task.state != ScheduledTask.PENDING
+                    && !ScheduledTask.STATE_UPDATER.compareAndSet(task, ScheduledTask.RUNNING, ScheduledTask.PENDING)) {
+                // unsubscribed while running, so there is no next run
+                if (metrics != null && !release()) {
+                    // already counted as cancelled together with the worker
+                    metrics.onScheduled();
+                }
+                return;
+            }
+            if (metrics != null) {
+                metrics.onScheduled();
+                task.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dueMillis - now);
+            }
+            postAt(task, dueMillis);
+        }
+
+        private void post(ScheduledTask task, long delayMillis) {
+            postAt(task, SystemClock.uptimeMillis() + delayMillis);
+        }
+
+        private void postAt(ScheduledTask task, long uptimeMillis) {
+            task.posted = true;
+            handler.postAtTime(task, this, uptimeMillis);
+        }
+
+        /**
+         * Counts a task that ran or was cancelled as no longer pending. Only the side that won the
+         * task's state change may call this, once per scheduled run.
+         *
+         * @return whether the task was still pending, rather than cancelled together with the worker
+         */
+        boolean release() {
+            int count;
+            do {
+                count = pending.get();
+                if (count == 0) {
+                    return false;
                 }
-            }));
-            scheduledAction.addParent(compositeSubscription);
-            compositeSubscription.add(scheduledAction);
+            } while (!pending.compareAndSet(count, count - 1));
+            return true;
+        }
 
-            handler.postDelayed(scheduledAction, unit.toMillis(delayTime));
+        private void enqueue(ScheduledTask task) {
+            final ScheduledTask previous = TAIL_UPDATER.getAndSet(this, task);
+            previous.nextQueued = task;
 
-            return scheduledAction;
+            // only the task that moves the counter away from zero needs to post the drain message
+            if (wip.getAndIncrement() == 0) {
+                if (immediate && Looper.myLooper() == handler.getLooper()) {
+                    drain();
+                } else {
+                    postDrain();
+                }
+            }
+        }
+
+        private void postDrain() {
+            handler.postAtTime(drain, this, SystemClock.uptimeMillis());
+        }
+
+        /**
+         * Runs the tasks that were queued by the time the drain started. Tasks that get queued
+         * while draining are left to another drain message, so an action that keeps rescheduling
+         * itself cannot keep the other messages of the {@link Looper} from running.
+         */
+        private void drain() {
+            final int count = wip.get();
+            int ran = 0;
+            while (ran < count) {
+                final ScheduledTask task = head.nextQueued;
+                if (task == null) {
+                    // a producer has swapped the tail but not linked its task yet; come back for it
+                    break;
+                }
+                head = task;
+                ran++;
+                task.run();
+            }
+            if (wip.addAndGet(-ran) > 0) {
+                postDrain();
+            }
+        }
+    }
+
+    /**
+     * A scheduled action, which is at the same time the {@link Subscription} handed out to the
+     * caller and, unless it is batched, the callback of its message. Unsubscribing a posted task
+     * removes its message from the {@link Handler}'s queue.
+     */
+    private static class ScheduledTask implements Runnable, Subscription {
+
+        static final AtomicIntegerFieldUpdater<ScheduledTask> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(ScheduledTask.class, "state");
+
+        static final int PENDING = 0;
+        // only periodic tasks pass through this state, for the duration of a run
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        final InnerHandlerThreadScheduler worker;
+        Action0 action;
+        volatile int state;
+
+        // whether the task has a message of its own rather than being batched
+        volatile boolean posted;
+
+        // only set when the worker records metrics
+        long dueNanos;
+
+        private volatile ScheduledTask nextQueued;
+
+        ScheduledTask(InnerHandlerThreadScheduler worker, Action0 action) {
+            this.worker = worker;
+            this.action = action;
         }
 
         @Override
-        public Subscription schedule(final Action0 action) {
-            return schedule(action, 0, TimeUnit.MILLISECONDS);
+        public void run() {
+            if (!STATE_UPDATER.compareAndSet(this, PENDING, DONE)) {
+                return;
+            }
+            final Action0 action = this.action;
+            this.action = null;
+            if (start()) {
+                execute(action);
+            }
+        }
+
+        /**
+         * Settles a run that won the task's state change as either executed or cancelled, the
+         * latter if the worker has been unsubscribed in the meantime.
+         *
+         * @return whether the action should run
+         */
+        final boolean start() {
+            final SchedulerMetrics metrics = worker.metrics;
+            if (metrics == null) {
+                return !worker.unsubscribed;
+            }
+            if (!worker.release()) {
+                // already counted as cancelled together with the worker
+                return false;
+            }
+            if (worker.unsubscribed) {
+                metrics.onCancelled();
+                return false;
+            }
+            return true;
+        }
+
+        final void execute(Action0 action) {
+            final SchedulerMetrics metrics = worker.metrics;
+            long startNanos = 0;
+            if (metrics != null) {
+                startNanos = System.nanoTime();
+            }
+            try {
+                action.call();
+            } catch (Throwable e) {
+                // same treatment as rx.internal.schedulers.ScheduledAction
+                IllegalStateException ie;
+                if (e instanceof OnErrorNotImplementedException) {
+                    ie = new IllegalStateException("Exception thrown on Scheduler.Worker thread. Add `onError` handling.", e);
+                } else {
+                    ie = new IllegalStateException("Fatal Exception thrown on Scheduler.Worker thread.", e);
+                }
+                RxJavaPlugins.getInstance().getErrorHandler().handleError(ie);
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ie);
+            } finally {
+                if (metrics != null) {
+                    metrics.onExecuted(startNanos - dueNanos, System.nanoTime() - startNanos);
+                }
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            int state;
+            do {
+                state = this.state;
+                if (state == DONE) {
+                    return;
+                }
+            } while (!STATE_UPDATER.compareAndSet(this, state, DONE));
+            action = null;
+            if (state == RUNNING) {
+                // the run in progress accounts for itself and will not post the task again
+                return;
+            }
+            if (posted) {
+                worker.handler.removeCallbacks(this, worker);
+            }
+            if (worker.metrics != null && worker.release()) {
+                worker.metrics.onCancelled();
+            }
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return state == DONE || worker.unsubscribed;
+        }
+
+        /**
+         * Names the action, which is what a {@link Looper} logs as the callback of the task's
+         * message.
+         */
+        @Override
+        public String toString() {
+            final Action0 action = this.action;
+            return "HandlerThreadScheduler[" + (action != null ? action.getClass().getName() : "") + "]";
+        }
+    }
+
+    /**
+     * A task that runs its action at fixed deadlines until it or its worker is unsubscribed. The
+     * same task is posted again for every run.
+     */
+    private static final class PeriodicTask extends ScheduledTask {
+
+        private final long periodNanos;
+
+        // in the time base of SystemClock.uptimeMillis(), only touched on the handler's thread
+        private long deadlineNanos;
+
+        PeriodicTask(InnerHandlerThreadScheduler worker, Action0 action, long periodNanos) {
+            super(worker, action);
+            this.periodNanos = periodNanos;
         }
 
+        @Override
+        public void run() {
+            if (!STATE_UPDATER.compareAndSet(this, PENDING, RUNNING)) {
+                return;
+            }
+            final Action0 action = this.action;
+            if (!start()) {
+                state = DONE;
+                return;
+            }
+            execute(action);
+            if (worker.unsubscribed) {
+                state = DONE;
+                return;
+            }
+
+            final long now = SystemClock.uptimeMillis();
+            final long nowNanos = TimeUnit.MILLISECONDS.toNanos(now);
+            deadlineNanos += periodNanos;
+            if (deadlineNanos < nowNanos) {
+                deadlineNanos += ((nowNanos - deadlineNanos) / periodNanos + 1) * periodNanos;
+            }
+            worker.postPeriodic(this, now);
+        }
     }
 }
@@ -0,0 +1,248 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.internal.schedulers.ScheduledAction;
+import rx.subscriptions.Subscriptions;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+/**
+ * Schedules actions to run when the {@link Looper} of an Android Handler thread has nothing
+ * else to do.
+ * <p>
+ * All workers of a scheduler share a single queue, which is drained through a
+ * {@link MessageQueue.IdleHandler}: every time the {@link Looper} runs out of messages, the
+ * oldest queued action runs. Optionally a maximum deferral can be given, after which an action
+ * runs from an ordinary {@link Handler} message even if the {@link Looper} never went idle.
+ */
+public class IdleScheduler extends Scheduler {
+
+    private final Handler handler;
+    private final long maxDeferralMillis;
+
+    private final Queue<IdleAction> queue = new ConcurrentLinkedQueue<IdleAction>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // only touched on the handler's thread
+    private boolean registered;
+
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+
+    private final QueueWorker.ActionQueue idleQueue = new QueueWorker.ActionQueue() {
+        @Override
+        public void enqueue(ScheduledAction scheduledAction) {
+            IdleScheduler.this.enqueue(scheduledAction);
+        }
+    };
+
+    private final MessageQueue.IdleHandler idleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            return runIdle();
+        }
+    };
+
+    private final Runnable register = new Runnable() {
+        @Override
+        public void run() {
+            register();
+        }
+    };
+
+    private final Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+            // nothing to do, the message only makes the queue go idle once more
+        }
+    };
+
+    /**
+     * Constructs an {@link IdleScheduler} using the given {@link Handler}, which defers actions
+     * for as long as the {@link Looper} stays busy.
+     *
+     * @param handler
+     *            {@link Handler} of the thread whose idle time should be used
+     */
+    public IdleScheduler(Handler handler) {
+        this(handler, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructs an {@link IdleScheduler} using the given {@link Handler}
+     *
+     * @param handler
+     *            {@link Handler} of the thread whose idle time should be used
+     * @param maxDeferral
+     *            the time after which a queued action runs even if the {@link Looper} did not go
+     *            idle, or {@code 0} to wait for idle time indefinitely
+     * @param unit
+     *            the unit of {@code maxDeferral}
+     */
+    public IdleScheduler(Handler handler, long maxDeferral, TimeUnit unit) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler must be given");
+        }
+        if (maxDeferral < 0) {
+            throw new IllegalArgumentException("Maximum deferral must not be negative");
+        }
+        this.handler = handler;
+        this.maxDeferralMillis = unit.toMillis(maxDeferral);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new QueueWorker(handler, idleQueue);
+    }
+
+    /**
+     * @return the number of actions that have run
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return the number of actions that ran because their maximum deferral expired
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * @return the time all actions that have run spent waiting in the queue, in milliseconds
+     */
+    public long getTotalWaitMillis() {
+        return totalWaitMillis.get();
+    }
+
+    /**
+     * @return the longest time an action that has run spent waiting in the queue, in milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    /* Visible for testing */
+    void addIdleHandler(MessageQueue.IdleHandler idleHandler) {
+        // the queue of a Looper can only be obtained from its own thread before API 23
+        Looper.myQueue().addIdleHandler(idleHandler);
+    }
+
+    private void enqueue(ScheduledAction scheduledAction) {
+        final IdleAction idleAction = new IdleAction(scheduledAction);
+        if (maxDeferralMillis > 0) {
+            scheduledAction.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    handler.removeCallbacks(idleAction);
+                }
+            }));
+            handler.postDelayed(idleAction, maxDeferralMillis);
+        }
+
+        // count the action before it can be polled, so the count never drops below the queue size
+        if (pending.getAndIncrement() == 0) {
+            if (Looper.myLooper() == handler.getLooper()) {
+                register();
+            } else {
+                handler.post(register);
+            }
+        }
+        queue.offer(idleAction);
+    }
+
+    private void register() {
+        if (!registered) {
+            registered = true;
+            addIdleHandler(idleHandler);
+        }
+    }
+
+    /**
+     * Runs the oldest queued action that has not run yet.
+     *
+     * @return whether the idle handler should stay registered
+     */
+    private boolean runIdle() {
+        IdleAction idleAction;
+        while ((idleAction = queue.poll()) != null) {
+            pending.decrementAndGet();
+            if (idleAction.execute()) {
+                break;
+            }
+        }
+        if (pending.get() == 0) {
+            registered = false;
+            return false;
+        }
+        // the queue only calls idle handlers again after it has handled another message
+        handler.post(wakeUp);
+        return true;
+    }
+
+    private void recordWait(long waitMillis) {
+        executedCount.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+        long max;
+        while ((max = maxWaitMillis.get()) < waitMillis) {
+            if (maxWaitMillis.compareAndSet(max, waitMillis)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * A queued action, which also serves as the message that runs it when its maximum deferral
+     * expires. Whichever comes first runs the action, the other one finds it unsubscribed.
+     */
+    private final class IdleAction implements Runnable {
+
+        private final ScheduledAction scheduledAction;
+        private final long queuedAt = SystemClock.uptimeMillis();
+
+        IdleAction(ScheduledAction scheduledAction) {
+            this.scheduledAction = scheduledAction;
+        }
+
+        @Override
+        public void run() {
+            if (execute()) {
+                expiredCount.incrementAndGet();
+            }
+        }
+
+        boolean execute() {
+            if (scheduledAction.isUnsubscribed()) {
+                return false;
+            }
+            recordWait(SystemClock.uptimeMillis() - queuedAt);
+            scheduledAction.run();
+            return true;
+        }
+    }
+}
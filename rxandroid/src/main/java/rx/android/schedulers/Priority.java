@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+/**
+ * Priorities of the main thread schedulers returned by {@link AndroidSchedulers#mainThread(Priority)},
+ * from highest to lowest.
+ */
+public enum Priority {
+
+    /**
+     * Work that reacts to user input and should run as soon as possible.
+     */
+    INPUT,
+
+    /**
+     * Regular UI updates.
+     */
+    NORMAL,
+
+    /**
+     * UI work nobody is waiting for, such as prefetching or pre-rendering. Actions of this
+     * priority run one per {@link android.os.Looper} message, so input and frames are not
+     * held up by a backlog of them.
+     */
+    BACKGROUND
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.internal.schedulers.ScheduledAction;
+import android.os.Handler;
+
+/**
+ * Drains actions of several priorities from a single {@link Handler} message.
+ * <p>
+ * Every {@link Priority} has a lane with a queue of its own, and {@link #lane(Priority)}
+ * returns the {@link Scheduler} that feeds it. The drain always runs the oldest action of
+ * the highest priority lane that has one, checking again after every action, so work of a
+ * higher priority overtakes everything that is queued below it. A drain runs no more actions
+ * than were queued when it started, and after an action of {@link Priority#BACKGROUND}
+ * priority it stops early; either way it posts itself again for the rest, to let the other
+ * messages of the {@link Handler}'s queue in.
+ */
+final class PriorityScheduler {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Handler handler;
+    private final List<Queue<ScheduledAction>> queues;
+    private final Scheduler[] lanes;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    PriorityScheduler(Handler handler) {
+        this.handler = handler;
+        this.queues = new ArrayList<Queue<ScheduledAction>>(PRIORITIES.length);
+        this.lanes = new Scheduler[PRIORITIES.length];
+        for (Priority priority : PRIORITIES) {
+            queues.add(new ConcurrentLinkedQueue<ScheduledAction>());
+            lanes[priority.ordinal()] = new Lane(priority);
+        }
+    }
+
+    /**
+     * @return the {@link Scheduler} whose actions run with the given priority
+     */
+    Scheduler lane(Priority priority) {
+        return lanes[priority.ordinal()];
+    }
+
+    void enqueue(Priority priority, ScheduledAction scheduledAction) {
+        queues.get(priority.ordinal()).offer(scheduledAction);
+        if (pending.getAndIncrement() == 0) {
+            handler.post(drain);
+        }
+    }
+
+    /**
+     * Runs at most as many actions as were pending when the drain started, so actions that keep
+     * rescheduling themselves, in any lane, cannot keep the other messages of the
+     * {@link Handler}'s queue out. Actions queued while draining may still overtake queued ones of
+     * a lower priority, but the drain posts itself again to run them.
+     */
+    private void drain() {
+        final int count = pending.get();
+        int ran = 0;
+        while (ran < count) {
+            Priority priority = null;
+            ScheduledAction scheduledAction = null;
+            for (int i = 0; i < PRIORITIES.length && scheduledAction == null; i++) {
+                scheduledAction = queues.get(i).poll();
+                priority = PRIORITIES[i];
+            }
+            ran++;
+            if (scheduledAction != null && !scheduledAction.isUnsubscribed()) {
+                scheduledAction.run();
+            }
+            if (priority == Priority.BACKGROUND) {
+                break;
+            }
+        }
+        if (pending.addAndGet(-ran) > 0) {
+            handler.post(drain);
+        }
+    }
+
+    private final class Lane extends Scheduler implements QueueWorker.ActionQueue {
+
+        private final Priority priority;
+
+        Lane(Priority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public Worker createWorker() {
+            return new QueueWorker(handler, this);
+        }
+
+        @Override
+        public void enqueue(ScheduledAction scheduledAction) {
+            PriorityScheduler.this.enqueue(priority, scheduledAction);
+        }
+    }
+}
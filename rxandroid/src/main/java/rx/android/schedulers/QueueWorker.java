@@ -0,0 +1,95 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.internal.schedulers.ScheduledAction;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+import android.os.Handler;
+
+/**
+ * A worker of a scheduler that drains its actions from a queue of its own. Actions without a
+ * delay are handed to the {@link ActionQueue} right away; delayed ones wait in a {@link Handler}
+ * message first, which is removed again when they are unsubscribed.
+ */
+final class QueueWorker extends Scheduler.Worker {
+
+    /**
+     * The queue a {@link QueueWorker} lines its actions up in once they are due.
+     */
+    interface ActionQueue {
+
+        void enqueue(ScheduledAction scheduledAction);
+    }
+
+    private final Handler handler;
+    private final ActionQueue queue;
+    private final CompositeSubscription compositeSubscription = new CompositeSubscription();
+
+    QueueWorker(Handler handler, ActionQueue queue) {
+        this.handler = handler;
+        this.queue = queue;
+    }
+
+    @Override
+    public void unsubscribe() {
+        compositeSubscription.unsubscribe();
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+        return compositeSubscription.isUnsubscribed();
+    }
+
+    @Override
+    public Subscription schedule(final Action0 action, long delayTime, TimeUnit unit) {
+        if (compositeSubscription.isUnsubscribed()) {
+            return Subscriptions.empty();
+        }
+        final ScheduledAction scheduledAction = new ScheduledAction(action);
+        scheduledAction.addParent(compositeSubscription);
+        compositeSubscription.add(scheduledAction);
+
+        if (delayTime <= 0) {
+            queue.enqueue(scheduledAction);
+        } else {
+            // wait for the delay first, then line up behind the actions already queued
+            final Runnable delayed = new Runnable() {
+                @Override
+                public void run() {
+                    queue.enqueue(scheduledAction);
+                }
+            };
+            scheduledAction.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    handler.removeCallbacks(delayed);
+                }
+            }));
+            handler.postDelayed(delayed, unit.toMillis(delayTime));
+        }
+
+        return scheduledAction;
+    }
+
+    @Override
+    public Subscription schedule(final Action0 action) {
+        return schedule(action, 0, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and histograms describing the actions of a scheduler, which can be read while the
+ * scheduler is in use.
+ * <p>
+ * Pass an instance to {@link HandlerThreadScheduler#HandlerThreadScheduler(android.os.Handler, boolean, SchedulerMetrics)}
+ * to have the scheduler record into it. Recording does not allocate and does not lock, so it
+ * can stay enabled in production builds.
+ */
+public final class SchedulerMetrics {
+
+    private final Histogram queueLatency = new Histogram();
+    private final Histogram runTime = new Histogram();
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    /**
+     * @return the time from when actions were due until they started running
+     */
+    public Histogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * @return the time actions took to run
+     */
+    public Histogram getRunTime() {
+        return runTime;
+    }
+
+    /**
+     * @return the number of actions that have been scheduled
+     */
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * @return the number of actions that have run
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return the number of actions that were unsubscribed, or whose worker was, before they ran
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    void onScheduled() {
+        scheduledCount.incrementAndGet();
+    }
+
+    void onExecuted(long queueLatencyNanos, long runTimeNanos) {
+        executedCount.incrementAndGet();
+        queueLatency.record(queueLatencyNanos);
+        runTime.record(runTimeNanos);
+    }
+
+    void onCancelled() {
+        cancelledCount.incrementAndGet();
+    }
+
+    /**
+     * A histogram of durations with fixed, exponentially growing buckets.
+     * <p>
+     * Bucket {@code 0} counts durations below one microsecond, bucket {@code i} durations of at
+     * least 2<sup>i-1</sup> and below 2<sup>i</sup> microseconds, and the last bucket everything
+     * longer than that.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKET_COUNT = 24;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        Histogram() {
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            final long micros = nanos / 1000;
+            final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            totalNanos.addAndGet(nanos);
+        }
+
+        /**
+         * @return the number of buckets
+         */
+        public int getBucketCount() {
+            return BUCKET_COUNT;
+        }
+
+        /**
+         * @return the exclusive upper bound of the given bucket in microseconds, or
+         *         {@link Long#MAX_VALUE} for the last bucket
+         */
+        public long getUpperBoundMicros(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+        }
+
+        /**
+         * @return the number of durations recorded in the given bucket
+         */
+        public long getCount(int bucket) {
+            return buckets.get(bucket);
+        }
+
+        /**
+         * @return the number of durations recorded in all buckets
+         */
+        public long getTotalCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * @return the sum of all recorded durations in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+    }
+}
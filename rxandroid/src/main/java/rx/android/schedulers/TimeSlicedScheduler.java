@@ -0,0 +1,134 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Scheduler;
+import rx.internal.schedulers.ScheduledAction;
+import android.os.Handler;
+
+/**
+ * Schedules actions on an Android Handler thread in time slices.
+ * <p>
+ * All workers of a scheduler share a single queue. A slice runs queued actions until the
+ * time budget is spent and then posts a new message to continue with the rest, so other
+ * messages in the {@link Handler}'s queue, such as input events and frame traversals, get
+ * a chance to run in between. An action that is already running is never interrupted, so a
+ * slice can exceed its budget by the duration of its last action.
+ */
+public class TimeSlicedScheduler extends Scheduler {
+
+    private final Handler handler;
+    private final long budgetNanos;
+
+    private final Queue<ScheduledAction> queue = new ConcurrentLinkedQueue<ScheduledAction>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicLong sliceCount = new AtomicLong();
+    private final AtomicLong exhaustedSliceCount = new AtomicLong();
+
+    private final QueueWorker.ActionQueue sliceQueue = new QueueWorker.ActionQueue() {
+        @Override
+        public void enqueue(ScheduledAction scheduledAction) {
+            TimeSlicedScheduler.this.enqueue(scheduledAction);
+        }
+    };
+
+    private final Runnable slice = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Constructs a {@link TimeSlicedScheduler} using the given {@link Handler}
+     *
+     * @param handler
+     *            {@link Handler} to use when scheduling actions
+     * @param budget
+     *            the time a single slice may spend running actions
+     * @param unit
+     *            the unit of {@code budget}
+     */
+    public TimeSlicedScheduler(Handler handler, long budget, TimeUnit unit) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler must be given");
+        }
+        final long budgetNanos = unit.toNanos(budget);
+        if (budgetNanos < 1) {
+            throw new IllegalArgumentException("Budget must be positive");
+        }
+        this.handler = handler;
+        this.budgetNanos = budgetNanos;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new QueueWorker(handler, sliceQueue);
+    }
+
+    /**
+     * @return the number of slices that have started running actions
+     */
+    public long getSliceCount() {
+        return sliceCount.get();
+    }
+
+    /**
+     * @return the number of slices that spent their budget and left actions for a following slice
+     */
+    public long getExhaustedSliceCount() {
+        return exhaustedSliceCount.get();
+    }
+
+    private void enqueue(ScheduledAction scheduledAction) {
+        queue.offer(scheduledAction);
+        if (pending.getAndIncrement() == 0) {
+            handler.post(slice);
+        }
+    }
+
+    /* Visible for testing */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Runs queued actions until the queue is empty or the budget of this slice is spent. The
+     * budget is measured with {@link System#nanoTime()}, as budgets of a few milliseconds are
+     * too short for the millisecond resolution of {@link android.os.SystemClock#uptimeMillis()}.
+     */
+    private void drain() {
+        sliceCount.incrementAndGet();
+        final long start = nanoTime();
+        do {
+            final ScheduledAction scheduledAction = queue.poll();
+            if (scheduledAction != null && !scheduledAction.isUnsubscribed()) {
+                scheduledAction.run();
+            }
+            if (pending.decrementAndGet() == 0) {
+                return;
+            }
+        } while (nanoTime() - start < budgetNanos);
+
+        exhaustedSliceCount.incrementAndGet();
+        handler.post(slice);
+    }
+}
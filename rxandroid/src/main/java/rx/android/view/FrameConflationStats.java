@@ -0,0 +1,50 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.view;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the values that {@link ViewObservable#latestPerFrame(rx.Observable, FrameConflationStats)}
+ * delivered and skipped, which can be read while the sequences are running.
+ * <p>
+ * An instance may be shared by several sequences to count their values together.
+ */
+public final class FrameConflationStats {
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    /**
+     * @return the number of values that have been delivered
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * @return the number of values that were replaced by a newer one before their frame came
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    void onDelivered() {
+        deliveredCount.incrementAndGet();
+    }
+
+    void onSkipped() {
+        skippedCount.incrementAndGet();
+    }
+}
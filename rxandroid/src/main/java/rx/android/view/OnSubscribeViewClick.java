@@ -65,17 +65,25 @@ final class OnSubscribeViewClick implements Observable.OnSubscribe<OnClickEvent>
     private static class CompositeOnClickListener implements View.OnClickListener {
         private final List<View.OnClickListener> listeners = new ArrayList<View.OnClickListener>();
 
+        // copied on every change, so clicks neither allocate an iterator nor break when a
+        // listener unsubscribes while they are dispatched
+        private View.OnClickListener[] snapshot = new View.OnClickListener[0];
+
         public boolean addOnClickListener(final View.OnClickListener listener) {
-            return listeners.add(listener);
+            final boolean added = listeners.add(listener);
+            snapshot = listeners.toArray(new View.OnClickListener[listeners.size()]);
+            return added;
         }
 
         public boolean removeOnClickListener(final View.OnClickListener listener) {
-            return listeners.remove(listener);
+            final boolean removed = listeners.remove(listener);
+            snapshot = listeners.toArray(new View.OnClickListener[listeners.size()]);
+            return removed;
         }
 
         @Override
         public void onClick(final View view) {
-            for (final View.OnClickListener listener : listeners) {
+            for (final View.OnClickListener listener : snapshot) {
                 listener.onClick(view);
             }
         }
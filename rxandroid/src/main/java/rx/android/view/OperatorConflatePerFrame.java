@@ -0,0 +1,113 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.view;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.internal.operators.NotificationLite;
+
+/**
+ * Delivers only the newest value of a source sequence per frame.
+ * <p>
+ * Values may arrive on any thread. The first value after a frame schedules an action on the
+ * frame scheduler; values arriving before that action runs replace the waiting one and are
+ * counted as skipped. Completion and errors are delivered in the next frame, right after the
+ * value still waiting for it if there is one, so they arrive in the same frame as that value.
+ *
+ * @param <T> the type of the values
+ */
+final class OperatorConflatePerFrame<T> implements Observable.Operator<T, T> {
+
+    private final Scheduler scheduler;
+    private final FrameConflationStats stats;
+
+    OperatorConflatePerFrame(Scheduler scheduler, FrameConflationStats stats) {
+        this.scheduler = scheduler;
+        this.stats = stats;
+    }
+
+    @Override
+    public Subscriber<? super T> call(final Subscriber<? super T> child) {
+        final Scheduler.Worker worker = scheduler.createWorker();
+        child.add(worker);
+        final ConflatingSubscriber<T> parent = new ConflatingSubscriber<T>(child, worker, stats);
+        child.add(parent);
+        return parent;
+    }
+
+    private static final class ConflatingSubscriber<T> extends Subscriber<T> implements Action0 {
+
+        private final NotificationLite<T> on = NotificationLite.instance();
+
+        private final Subscriber<? super T> child;
+        private final Scheduler.Worker worker;
+        private final FrameConflationStats stats;
+
+        // the value waiting for the next frame in NotificationLite form, or null
+        private final AtomicReference<Object> latest = new AtomicReference<Object>();
+
+        ConflatingSubscriber(Subscriber<? super T> child, Scheduler.Worker worker, FrameConflationStats stats) {
+            this.child = child;
+            this.worker = worker;
+            this.stats = stats;
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (latest.getAndSet(on.next(t)) == null) {
+                worker.schedule(this);
+            } else if (stats != null) {
+                stats.onSkipped();
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    child.onCompleted();
+                }
+            });
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    child.onError(e);
+                }
+            });
+        }
+
+        /**
+         * Delivers the waiting value in the frame.
+         */
+        @Override
+        public void call() {
+            final Object value = latest.getAndSet(null);
+            if (value != null && !child.isUnsubscribed()) {
+                child.onNext(on.getValue(value));
+                if (stats != null) {
+                    stats.onDelivered();
+                }
+            }
+        }
+    }
+}
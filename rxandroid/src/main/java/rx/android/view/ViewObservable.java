@@ -16,7 +16,9 @@ package rx.android.view;
 import android.view.View;
 
 import rx.Observable;
+import rx.Scheduler;
 import rx.android.internal.Assertions;
+import rx.android.schedulers.AndroidSchedulers;
 
 import static rx.android.schedulers.AndroidSchedulers.mainThread;
 
@@ -48,9 +50,55 @@ public final class ViewObservable {
      * @param source the source sequence
      */
     public static <T> Observable<T> bindView(View view, Observable<T> source) {
-        if (view == null || source == null)
-            throw new IllegalArgumentException("View and Observable must be given");
+        return bindView(view, source, mainThread());
+    }
+
+    /**
+     * Binds the given source sequence to the view, observing it on the given scheduler.
+     * <p>
+     * Works like {@link #bindView(View, Observable)}, but lets the caller pick the scheduler
+     * used to get onto the main UI thread, e.g.
+     * {@link rx.android.schedulers.AndroidSchedulers#mainThreadImmediate()} to avoid a Looper
+     * round trip for sources that already emit on the main thread. The scheduler must execute
+     * its actions on the main UI thread.
+     *
+     * @param view the view to bind the source sequence to
+     * @param source the source sequence
+     * @param scheduler the main thread scheduler to observe the source sequence on
+     */
+    public static <T> Observable<T> bindView(View view, Observable<T> source, Scheduler scheduler) {
+        if (view == null || source == null || scheduler == null)
+            throw new IllegalArgumentException("View, Observable and Scheduler must be given");
         Assertions.assertUiThread();
-        return source.takeUntil(Observable.create(new OnSubscribeViewDetachedFromWindowFirst(view))).observeOn(mainThread());
+        return source.takeUntil(Observable.create(new OnSubscribeViewDetachedFromWindowFirst(view))).observeOn(scheduler);
+    }
+
+    /**
+     * Delivers the newest value of the given source sequence on the main UI thread once per
+     * display frame.
+     * <p>
+     * Use this for sequences of UI state, of which only the latest value matters when the views
+     * are laid out and drawn. The source may emit on any thread and at any rate; values that are
+     * superseded before the next frame are skipped instead of being applied one after the other.
+     * Values are delivered through {@link rx.android.schedulers.AndroidSchedulers#frame()}.
+     *
+     * @param source the sequence of values
+     */
+    public static <T> Observable<T> latestPerFrame(Observable<T> source) {
+        return latestPerFrame(source, null);
+    }
+
+    /**
+     * Delivers the newest value of the given source sequence on the main UI thread once per
+     * display frame, counting delivered and skipped values.
+     * <p>
+     * Works like {@link #latestPerFrame(Observable)}, and records into {@code stats} how many
+     * values were delivered and how many were skipped.
+     *
+     * @param source the sequence of values
+     * @param stats the counters to record into, or {@code null}
+     */
+    public static <T> Observable<T> latestPerFrame(Observable<T> source, FrameConflationStats stats) {
+        return source.lift(new OperatorConflatePerFrame<T>(AndroidSchedulers.frame(), stats));
     }
 }
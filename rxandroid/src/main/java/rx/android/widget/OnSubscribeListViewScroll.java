@@ -69,24 +69,32 @@ class OnSubscribeListViewScroll implements Observable.OnSubscribe<OnListViewScro
 
         private final List<AbsListView.OnScrollListener> listeners = new ArrayList<AbsListView.OnScrollListener>();
 
+        // copied on every change, so scroll events neither allocate an iterator nor break when a
+        // listener unsubscribes while they are dispatched
+        private AbsListView.OnScrollListener[] snapshot = new AbsListView.OnScrollListener[0];
+
         public boolean addOnScrollListener(final AbsListView.OnScrollListener listener) {
-            return listeners.add(listener);
+            final boolean added = listeners.add(listener);
+            snapshot = listeners.toArray(new AbsListView.OnScrollListener[listeners.size()]);
+            return added;
         }
 
         public boolean removeOnScrollListener(final AbsListView.OnScrollListener listener) {
-            return listeners.remove(listener);
+            final boolean removed = listeners.remove(listener);
+            snapshot = listeners.toArray(new AbsListView.OnScrollListener[listeners.size()]);
+            return removed;
         }
 
         @Override
         public void onScrollStateChanged(AbsListView view, int scrollState) {
-            for (AbsListView.OnScrollListener listener : listeners) {
+            for (AbsListView.OnScrollListener listener : snapshot) {
                 listener.onScrollStateChanged(view, scrollState);
             }
         }
 
         @Override
         public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
-            for (AbsListView.OnScrollListener listener : listeners) {
+            for (AbsListView.OnScrollListener listener : snapshot) {
                 listener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
             }
         }
@@ -0,0 +1,76 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android;
+
+import android.os.Handler;
+import android.os.Message;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowHandler;
+
+import java.lang.reflect.Field;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Fills in what {@link ShadowHandler} lacks for messages that carry a callback: it runs the
+ * callback of such a message instead of handing the message to {@link Handler#handleMessage}, as
+ * {@link Handler#dispatchMessage} does, and implements {@link Handler#removeCallbacks(Runnable, Object)}.
+ * <p>
+ * This lets runnables posted with a token through {@link Handler#postAtTime(Runnable, Object, long)}
+ * run and be removed again. Tests that run actions of {@link rx.android.schedulers.HandlerThreadScheduler}
+ * on a real {@link Handler} install it with {@code @Config(shadows = ShadowTokenHandler.class)}.
+ */
+@Implements(Handler.class)
+public class ShadowTokenHandler extends ShadowHandler {
+
+    private static final Field MESSAGES;
+
+    static {
+        try {
+            MESSAGES = ShadowHandler.class.getDeclaredField("messages");
+            MESSAGES.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Implementation
+    public void handleMessage(Message msg) {
+        if (msg.getCallback() != null) {
+            msg.getCallback().run();
+        }
+    }
+
+    @Implementation
+    public void removeCallbacks(Runnable r, Object token) {
+        final Iterator<Message> messages = messages().iterator();
+        while (messages.hasNext()) {
+            final Message message = messages.next();
+            if (message.getCallback() == r && (token == null || token == message.obj)) {
+                messages.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Message> messages() {
+        try {
+            return (List<Message>) MESSAGES.get(this);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import android.view.View;
 import org.robolectric.Robolectric;
 import org.robolectric.util.Scheduler;
 
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 
@@ -51,4 +52,29 @@ public class TestUtil {
         });
     }
 
+    /**
+     * Returns the number of bytes allocated so far by the current thread, as counted by the JVM.
+     */
+    public static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the number of bytes the current thread allocates per run of {@code action}. The
+     * action is run in several rounds and the lowest average counts, so allocations that the
+     * JIT compiler removes once it has warmed up do not.
+     */
+    public static long allocatedBytesPerRun(final Runnable action) {
+        final int runs = 10000;
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            final long start = allocatedBytes();
+            for (int i = 0; i < runs; i++) {
+                action.run();
+            }
+            lowest = Math.min(lowest, allocatedBytes() - start);
+        }
+        return lowest / runs;
+    }
 }
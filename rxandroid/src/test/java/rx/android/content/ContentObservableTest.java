@@ -15,7 +15,9 @@ package rx.android.content;
 
 import android.app.Activity;
 import android.app.Fragment;
+import android.database.AbstractWindowedCursor;
 import android.database.Cursor;
+import android.database.CursorWindow;
 import android.support.v4.app.FragmentActivity;
 
 import org.junit.Before;
@@ -28,6 +30,8 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -38,10 +42,15 @@ import java.util.concurrent.TimeUnit;
 import rx.Observable;
 import rx.Observer;
 import rx.Subscriber;
+import rx.android.ShadowTokenHandler;
 import rx.android.TestUtil;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Func1;
 import rx.observers.TestObserver;
 import rx.observers.TestSubscriber;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -52,7 +61,7 @@ import static org.mockito.Mockito.when;
 
 
 @RunWith(RobolectricTestRunner.class)
-@Config(manifest = Config.NONE)
+@Config(manifest = Config.NONE, shadows = ShadowTokenHandler.class)
 public class ContentObservableTest {
 
     // support library fragments
@@ -92,6 +101,32 @@ public class ContentObservableTest {
         verify(observer).onCompleted();
     }
 
+    @Test
+    public void itDeliversInPlaceWithImmediateScheduler() {
+        Robolectric.pauseMainLooper();
+        ContentObservable.bindActivity(activity, Observable.just("success"), AndroidSchedulers.mainThreadImmediate())
+                .subscribe(new TestObserver<String>(observer));
+        verify(observer).onNext("success");
+        verify(observer).onCompleted();
+        Robolectric.unPauseMainLooper();
+    }
+
+    @Test
+    public void itDeliversThroughBoundedBufferWhenGivenCapacity() {
+        ContentObservable.bindActivity(activity, Observable.just("success"), 4, OverflowStrategy.DROP_OLDEST)
+                .subscribe(new TestObserver<String>(observer));
+        verify(observer).onNext("success");
+        verify(observer).onCompleted();
+    }
+
+    @Test
+    public void itDeliversToSupportFragmentThroughBoundedBufferWhenGivenCapacity() {
+        ContentObservable.bindFragment(supportFragment, Observable.just("success"), 4, OverflowStrategy.LATEST)
+                .subscribe(new TestObserver<String>(observer));
+        verify(observer).onNext("success");
+        verify(observer).onCompleted();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void itThrowsIfObjectPassedIsNotAFragment() {
         ContentObservable.bindFragment("not a fragment", Observable.never());
@@ -232,4 +267,169 @@ public class ContentObservableTest {
         verify(subscriber).onError(throwable);
         verify(cursor).close();
     }
+
+    @Test
+    public void givenCursorWhenFromCursorRequestedInStepsThenMovesOnlyAsFarAsRequested() {
+        final TestSubscriber<Cursor> subscriber = new TestSubscriber<Cursor>() {
+            @Override
+            public void onStart() {
+                request(2);
+            }
+        };
+        final Cursor cursor = mock(Cursor.class);
+        when(cursor.moveToNext()).thenReturn(true, true, true, false);
+
+        ContentObservable.fromCursor(cursor).subscribe(subscriber);
+        verify(cursor, times(2)).moveToNext();
+        verify(cursor, never()).close();
+        assertEquals(2, subscriber.getOnNextEvents().size());
+
+        subscriber.requestMore(1);
+        verify(cursor, times(3)).moveToNext();
+        assertEquals(3, subscriber.getOnNextEvents().size());
+        assertTrue(subscriber.getOnCompletedEvents().isEmpty());
+
+        // the end is found without further demand as soon as the next position is requested
+        subscriber.requestMore(1);
+        assertEquals(3, subscriber.getOnNextEvents().size());
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        verify(cursor).close();
+    }
+
+    @Test
+    public void givenCursorWhenUnsubscribedBeforeLastPositionThenClosesCursor() {
+        final TestSubscriber<Cursor> subscriber = new TestSubscriber<Cursor>() {
+            @Override
+            public void onStart() {
+                request(1);
+            }
+        };
+        final Cursor cursor = mock(Cursor.class);
+        when(cursor.moveToNext()).thenReturn(true);
+
+        ContentObservable.fromCursor(cursor).subscribe(subscriber);
+        subscriber.unsubscribe();
+        verify(cursor).close();
+
+        subscriber.requestMore(1);
+        verify(cursor).moveToNext();
+        assertEquals(1, subscriber.getOnNextEvents().size());
+    }
+
+    @Test
+    public void givenRowMapperWhenFromCursorInvokedThenEmitsDecodedRowsResolvingColumnsOnce() {
+        final TestSubscriber<String> subscriber = new TestSubscriber<String>();
+        final Cursor cursor = mock(Cursor.class);
+        when(cursor.getColumnIndexOrThrow("name")).thenReturn(3);
+        when(cursor.moveToNext()).thenReturn(true, true, false);
+        when(cursor.getString(3)).thenReturn("first", "second");
+
+        ContentObservable.fromCursor(cursor, new RowMapper<String>("name") {
+            @Override
+            public String map(Cursor cursor, int[] columns) {
+                return cursor.getString(columns[0]);
+            }
+        }).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("first", "second"));
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        verify(cursor).getColumnIndexOrThrow("name");
+        verify(cursor).close();
+    }
+
+    @Test
+    public void givenRowMapperOfMissingColumnWhenFromCursorInvokedThenFailsAndClosesCursor() {
+        final TestSubscriber<String> subscriber = new TestSubscriber<String>();
+        final Cursor cursor = mock(Cursor.class);
+        final IllegalArgumentException missing = new IllegalArgumentException();
+        when(cursor.getColumnIndexOrThrow("name")).thenThrow(missing);
+
+        ContentObservable.fromCursor(cursor, new RowMapper<String>("name") {
+            @Override
+            public String map(Cursor cursor, int[] columns) {
+                return cursor.getString(columns[0]);
+            }
+        }).subscribe(subscriber);
+
+        assertEquals(Arrays.<Throwable>asList(missing), subscriber.getOnErrorEvents());
+        verify(cursor, never()).moveToNext();
+        verify(cursor).close();
+    }
+
+    @Test
+    public void givenChunkSizeWhenFromCursorChunksInvokedThenEmitsRowsInChunksOfThatSize() {
+        final TestSubscriber<List<Integer>> subscriber = new TestSubscriber<List<Integer>>();
+        final Cursor cursor = mock(Cursor.class);
+        when(cursor.getColumnIndexOrThrow("id")).thenReturn(0);
+        when(cursor.moveToNext()).thenReturn(true, true, true, true, true, false);
+        when(cursor.getInt(0)).thenReturn(1, 2, 3, 4, 5);
+
+        ContentObservable.fromCursorChunks(cursor, ID, 2).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        verify(cursor).close();
+    }
+
+    @Test
+    public void givenWindowedCursorWhenFromCursorChunksInvokedThenEndsChunksWithWindows() {
+        final TestSubscriber<List<Integer>> subscriber = new TestSubscriber<List<Integer>>() {
+            @Override
+            public void onStart() {
+                request(1);
+            }
+        };
+        final AbstractWindowedCursor cursor = mock(AbstractWindowedCursor.class);
+        final CursorWindow first = mock(CursorWindow.class);
+        when(first.getStartPosition()).thenReturn(0);
+        when(first.getNumRows()).thenReturn(3);
+        final CursorWindow second = mock(CursorWindow.class);
+        when(second.getStartPosition()).thenReturn(3);
+        when(second.getNumRows()).thenReturn(2);
+        when(cursor.getWindow()).thenReturn(first, second);
+        when(cursor.getPosition()).thenReturn(0, 3);
+        when(cursor.getColumnIndexOrThrow("id")).thenReturn(0);
+        when(cursor.moveToNext()).thenReturn(true, true, true, true, true, false);
+        when(cursor.getInt(0)).thenReturn(1, 2, 3, 4, 5);
+
+        ContentObservable.fromCursorChunks(cursor, ID).subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Arrays.<List<Integer>>asList(Arrays.asList(1, 2, 3)));
+        verify(cursor, times(3)).moveToNext();
+
+        subscriber.requestMore(2);
+        subscriber.assertReceivedOnNext(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5)));
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        verify(cursor).close();
+    }
+
+    @Test
+    public void givenCursorsWhenDiffInvokedThenDecodesAndClosesEachCursor() {
+        final TestSubscriber<RowChangeSet<Integer>> subscriber = new TestSubscriber<RowChangeSet<Integer>>();
+        final Cursor first = mock(Cursor.class);
+        when(first.moveToNext()).thenReturn(true, false);
+        when(first.getInt(0)).thenReturn(1);
+        final Cursor second = mock(Cursor.class);
+        when(second.moveToNext()).thenReturn(true, true, false);
+        when(second.getInt(0)).thenReturn(1, 2);
+
+        ContentObservable.diff(Observable.just(first, second), ID, new Func1<Integer, Integer>() {
+            @Override
+            public Integer call(Integer id) {
+                return id;
+            }
+        }).subscribe(subscriber);
+
+        assertEquals(2, subscriber.getOnNextEvents().size());
+        assertEquals(Arrays.asList(1, 2), subscriber.getOnNextEvents().get(1).rows());
+        assertEquals(Arrays.asList(RowChange.insert(1)), subscriber.getOnNextEvents().get(1).changes());
+        verify(first).close();
+        verify(second).close();
+    }
+
+    private static final RowMapper<Integer> ID = new RowMapper<Integer>("id") {
+        @Override
+        public Integer map(Cursor cursor, int[] columns) {
+            return cursor.getInt(columns[0]);
+        }
+    };
 }
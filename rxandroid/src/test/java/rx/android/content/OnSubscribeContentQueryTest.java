@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class OnSubscribeContentQueryTest {
+
+    private static final Uri URI = Uri.parse("content://test/items");
+
+    private ContentResolver resolver;
+    private TestScheduler scheduler;
+    private TestSubscriber<Cursor> subscriber;
+    private Subscription subscription;
+
+    @Before
+    public void setUp() {
+        resolver = mock(ContentResolver.class);
+        scheduler = new TestScheduler();
+        subscriber = new TestSubscriber<Cursor>();
+    }
+
+    @Test
+    public void shouldQueryOnSubscribeAndUnregisterOnUnsubscribe() {
+        final Cursor cursor = mock(Cursor.class);
+        when(query()).thenReturn(cursor);
+
+        subscribe();
+        final ContentObserver observer = registeredObserver();
+        subscriber.assertReceivedOnNext(Collections.<Cursor>emptyList());
+
+        scheduler.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList(cursor));
+
+        subscription.unsubscribe();
+        verify(resolver).unregisterContentObserver(observer);
+    }
+
+    @Test
+    public void shouldRequeryOnceForBurstOfNotifications() {
+        final Cursor first = mock(Cursor.class);
+        final Cursor second = mock(Cursor.class);
+        when(query()).thenReturn(first, second);
+        subscribe();
+        scheduler.triggerActions();
+        final ContentObserver observer = registeredObserver();
+
+        observer.onChange(false);
+        scheduler.advanceTimeBy(60, TimeUnit.MILLISECONDS);
+        observer.onChange(false);
+        scheduler.advanceTimeBy(60, TimeUnit.MILLISECONDS);
+        observer.onChange(false);
+        scheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+        subscriber.assertReceivedOnNext(Arrays.asList(first));
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        subscriber.assertReceivedOnNext(Arrays.asList(first, second));
+        verify(resolver, times(2)).query(eq(URI), isNull(String[].class), anyString(), isNull(String[].class), isNull(String.class));
+    }
+
+    @Test
+    public void shouldDropQueryOvertakenByNotification() {
+        final Cursor stale = mock(Cursor.class);
+        final Cursor fresh = mock(Cursor.class);
+        when(query()).thenAnswer(new Answer<Cursor>() {
+            private int count;
+
+            @Override
+            public Cursor answer(InvocationOnMock invocation) {
+                if (count++ == 0) {
+                    // the content changes while the first query runs
+                    registeredObserver().onChange(false);
+                    return stale;
+                }
+                return fresh;
+            }
+        });
+
+        subscribe();
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertReceivedOnNext(Arrays.asList(fresh));
+        verify(stale).close();
+        verify(fresh, never()).close();
+    }
+
+    @Test
+    public void shouldDeliverEverySecondResultWhileContentKeepsChanging() {
+        final Cursor[] cursors = new Cursor[4];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = mock(Cursor.class);
+        }
+        when(query()).thenAnswer(new Answer<Cursor>() {
+            private int count;
+
+            @Override
+            public Cursor answer(InvocationOnMock invocation) {
+                // the content changes while every query runs
+                registeredObserver().onChange(false);
+                return cursors[count++];
+            }
+        });
+
+        subscribe();
+        scheduler.advanceTimeBy(300, TimeUnit.MILLISECONDS);
+
+        subscriber.assertReceivedOnNext(Arrays.asList(cursors[1], cursors[3]));
+        verify(cursors[0]).close();
+        verify(cursors[2]).close();
+    }
+
+    @Test
+    public void shouldFailWhenQueryThrows() {
+        final SecurityException denied = new SecurityException();
+        when(query()).thenThrow(denied);
+
+        subscribe();
+        scheduler.triggerActions();
+
+        assertEquals(Arrays.<Throwable>asList(denied), subscriber.getOnErrorEvents());
+        final ContentObserver observer = registeredObserver();
+        verify(resolver).unregisterContentObserver(observer);
+    }
+
+    private Cursor query() {
+        return resolver.query(eq(URI), isNull(String[].class), anyString(), isNull(String[].class), isNull(String.class));
+    }
+
+    private void subscribe() {
+        // debounce on the test scheduler's clock
+        final OnSubscribeContentQuery onSubscribe = new OnSubscribeContentQuery(resolver, URI, null, "done = 0",
+                null, null, true, scheduler, 100) {
+            @Override
+            long nanoTime() {
+                return TimeUnit.MILLISECONDS.toNanos(scheduler.now());
+            }
+        };
+        subscription = Observable.create(onSubscribe).subscribe(subscriber);
+    }
+
+    private ContentObserver registeredObserver() {
+        final ArgumentCaptor<ContentObserver> observer = ArgumentCaptor.forClass(ContentObserver.class);
+        verify(resolver).registerContentObserver(eq(URI), eq(true), observer.capture());
+        return observer.getValue();
+    }
+}
@@ -15,6 +15,7 @@ package rx.android.content;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -22,6 +23,8 @@ import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import rx.Subscriber;
+import rx.android.TestUtil;
+import rx.android.internal.Assertions;
 import rx.android.content.OperatorConditionalBinding;
 import rx.functions.Func1;
 import rx.internal.util.UtilityFunctions;
@@ -86,4 +89,44 @@ public class OperatorConditionalBindingTest {
         op.call(subscriber).unsubscribe();
         subscriber.assertUnsubscribed();
     }
+
+    @Test
+    public void shouldNotAllocateWhenForwardingItems() {
+        OperatorConditionalBinding<String, Object> op = new OperatorConditionalBinding<String, Object>(
+                new Object(), new Func1<Object, Boolean>() {
+            @Override
+            public Boolean call(Object o) {
+                return true;
+            }
+        });
+        final Subscriber<? super String> sub = op.call(new Subscriber<String>() {
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(String s) {
+            }
+        });
+
+        final long allocated = TestUtil.allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                sub.onNext("one");
+            }
+        });
+
+        // the shadowed Looper allocates on its own, so measure the thread check as a baseline
+        final long baseline = TestUtil.allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                Assertions.assertUiThread();
+            }
+        });
+        assertTrue("allocated " + (allocated - baseline) + " bytes per item", allocated - baseline <= 0);
+    }
 }
@@ -0,0 +1,148 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class OperatorDiffRowsTest {
+
+    // rows are "key:contents", keyed by the part before the colon
+    private static final Func1<String, String> KEY = new Func1<String, String>() {
+        @Override
+        public String call(String row) {
+            return row.substring(0, row.indexOf(':'));
+        }
+    };
+
+    private final OperatorDiffRows<String, String> operator = new OperatorDiffRows<String, String>(KEY);
+
+    @Test
+    public void shouldEmitFirstSnapshotAsInsertions() {
+        final PublishSubject<List<String>> snapshots = PublishSubject.create();
+        final TestSubscriber<RowChangeSet<String>> subscriber = new TestSubscriber<RowChangeSet<String>>();
+        ContentObservable.diff(snapshots, KEY).subscribe(subscriber);
+
+        snapshots.onNext(Arrays.asList("1:a", "2:b"));
+
+        final RowChangeSet<String> changeSet = subscriber.getOnNextEvents().get(0);
+        assertEquals(Arrays.asList("1:a", "2:b"), changeSet.rows());
+        assertEquals(Arrays.asList(RowChange.insert(0), RowChange.insert(1)), changeSet.changes());
+    }
+
+    @Test
+    public void shouldSkipSnapshotsWithoutChanges() {
+        final PublishSubject<List<String>> snapshots = PublishSubject.create();
+        final TestSubscriber<RowChangeSet<String>> subscriber = new TestSubscriber<RowChangeSet<String>>();
+        ContentObservable.diff(snapshots, KEY).subscribe(subscriber);
+
+        snapshots.onNext(Collections.<String>emptyList());
+        snapshots.onNext(Collections.<String>emptyList());
+        snapshots.onNext(Arrays.asList("1:a"));
+        snapshots.onNext(Arrays.asList("1:a"));
+
+        assertEquals(2, subscriber.getOnNextEvents().size());
+        assertEquals(Arrays.asList(RowChange.insert(0)), subscriber.getOnNextEvents().get(1).changes());
+    }
+
+    @Test
+    public void shouldReportEachKindOfChange() {
+        final List<RowChange> changes = operator.diff(
+                Arrays.asList("1:a", "2:b", "3:c", "4:d"),
+                Arrays.asList("2:b", "3:changed", "5:e", "1:a"));
+
+        assertEquals(Arrays.asList(
+                RowChange.delete(3),
+                RowChange.move(0, 2),
+                RowChange.insert(2),
+                RowChange.update(1)), changes);
+    }
+
+    @Test
+    public void shouldMoveOnlyTheRowThatChangedItsPlace() {
+        final List<RowChange> changes = operator.diff(
+                Arrays.asList("1:a", "2:b", "3:c", "4:d", "5:e"),
+                Arrays.asList("2:b", "3:c", "4:d", "5:e", "1:a"));
+
+        assertEquals(Arrays.asList(RowChange.move(0, 4)), changes);
+    }
+
+    @Test
+    public void shouldFailOnDuplicateKeys() {
+        final PublishSubject<List<String>> snapshots = PublishSubject.create();
+        final TestSubscriber<RowChangeSet<String>> subscriber = new TestSubscriber<RowChangeSet<String>>();
+        ContentObservable.diff(snapshots, KEY).subscribe(subscriber);
+
+        snapshots.onNext(Arrays.asList("1:a", "1:b"));
+
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void shouldTurnPreviousRowsIntoNewRowsWhenChangesAreApplied() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            final List<String> previous = randomRows(random);
+            final List<String> rows = randomRows(random);
+
+            final List<String> applied = new ArrayList<String>(previous);
+            for (RowChange change : operator.diff(previous, rows)) {
+                switch (change.type()) {
+                    case DELETE:
+                        applied.remove(change.position());
+                        break;
+                    case INSERT:
+                        applied.add(change.position(), rows.get(change.position()));
+                        break;
+                    case MOVE:
+                        applied.add(change.position(), applied.remove(change.fromPosition()));
+                        break;
+                    case UPDATE:
+                        applied.set(change.position(), rows.get(change.position()));
+                        break;
+                }
+            }
+            assertEquals(rows, applied);
+        }
+    }
+
+    private static List<String> randomRows(Random random) {
+        final List<String> rows = new ArrayList<String>();
+        for (int key = 0; key < 20; key++) {
+            if (random.nextInt(4) > 0) {
+                rows.add(key + ":" + random.nextInt(3));
+            }
+        }
+        Collections.shuffle(rows, random);
+        return rows;
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.content;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.exceptions.MissingBackpressureException;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class OperatorObserveOnMainThreadTest {
+
+    @Test
+    public void shouldDeliverBufferedItemsFromSingleMessage() {
+        final Handler handler = mock(Handler.class);
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        source.lift(new OperatorObserveOnMainThread<Integer>(handler, 8, OverflowStrategy.ERROR)).subscribe(subscriber);
+
+        source.onNext(1);
+        source.onNext(2);
+        source.onNext(3);
+        source.onCompleted();
+
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+        assertTrue(subscriber.getOnNextEvents().isEmpty());
+
+        drain.getValue().run();
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3));
+        subscriber.assertTerminalEvent();
+        assertTrue(subscriber.getOnErrorEvents().isEmpty());
+    }
+
+    @Test
+    public void shouldOnlyDeliverRequestedItems() {
+        final Handler handler = mock(Handler.class);
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final RequestingSubscriber subscriber = new RequestingSubscriber(1);
+        source.lift(new OperatorObserveOnMainThread<Integer>(handler, 8, OverflowStrategy.ERROR)).subscribe(subscriber);
+
+        source.onNext(1);
+        source.onNext(2);
+        source.onNext(3);
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+        drain.getValue().run();
+        subscriber.assertReceivedOnNext(Arrays.asList(1));
+
+        subscriber.requestMore(5);
+        verify(handler, times(2)).post(drain.getValue());
+        drain.getValue().run();
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void shouldRequestNoMoreThanCapacityFromSourceAndReplenishAsItemsAreDelivered() {
+        final Handler handler = mock(Handler.class);
+        final List<Long> requests = new ArrayList<Long>();
+        final Observable<Integer> source = Observable.create(new Observable.OnSubscribe<Integer>() {
+            @Override
+            public void call(final Subscriber<? super Integer> child) {
+                child.setProducer(new Producer() {
+                    private int next = 1;
+
+                    @Override
+                    public void request(long n) {
+                        requests.add(n);
+                        for (int i = 0; i < n && next <= 100; i++) {
+                            child.onNext(next++);
+                        }
+                        if (next > 100) {
+                            child.onCompleted();
+                        }
+                    }
+                });
+            }
+        });
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        source.lift(new OperatorObserveOnMainThread<Integer>(handler, 16, OverflowStrategy.ERROR)).subscribe(subscriber);
+        assertEquals(Arrays.asList(16L), requests);
+
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+        drain.getValue().run();
+
+        assertEquals(100, subscriber.getOnNextEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().isEmpty());
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        for (long n : requests) {
+            assertTrue(n <= 16);
+        }
+    }
+
+    @Test
+    public void shouldDropOldestItemsOnOverflow() {
+        assertEquals(Arrays.asList(3, 4), deliverOverflowing(OverflowStrategy.DROP_OLDEST).getOnNextEvents());
+    }
+
+    @Test
+    public void shouldDropNewestItemsOnOverflow() {
+        assertEquals(Arrays.asList(1, 2), deliverOverflowing(OverflowStrategy.DROP_NEWEST).getOnNextEvents());
+    }
+
+    @Test
+    public void shouldKeepOnlyLatestItem() {
+        assertEquals(Arrays.asList(4), deliverOverflowing(OverflowStrategy.LATEST).getOnNextEvents());
+    }
+
+    @Test
+    public void shouldFailAndUnsubscribeFromSourceOnOverflow() {
+        final Handler handler = mock(Handler.class);
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        source.lift(new OperatorObserveOnMainThread<Integer>(handler, 2, OverflowStrategy.ERROR)).subscribe(subscriber);
+
+        source.onNext(1);
+        source.onNext(2);
+        source.onNext(3);
+        assertFalse(source.hasObservers());
+
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+        drain.getValue().run();
+        assertTrue(subscriber.getOnNextEvents().isEmpty());
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof MissingBackpressureException);
+    }
+
+    @Test
+    public void shouldRemoveDrainMessageWhenUnsubscribed() {
+        final Handler handler = mock(Handler.class);
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        final Subscription subscription = source.lift(new OperatorObserveOnMainThread<Integer>(handler, 2, OverflowStrategy.ERROR))
+                .subscribe(subscriber);
+
+        source.onNext(1);
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+
+        subscription.unsubscribe();
+        verify(handler).removeCallbacks(drain.getValue());
+        assertFalse(source.hasObservers());
+        drain.getValue().run();
+        assertTrue(subscriber.getOnNextEvents().isEmpty());
+    }
+
+    private static TestSubscriber<Integer> deliverOverflowing(OverflowStrategy strategy) {
+        final Handler handler = mock(Handler.class);
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        final PublishSubject<Integer> source = PublishSubject.create();
+        source.lift(new OperatorObserveOnMainThread<Integer>(handler, 2, strategy)).subscribe(subscriber);
+
+        // the subject ignores backpressure, like sources of Android callbacks do
+        for (int i = 1; i <= 4; i++) {
+            source.onNext(i);
+        }
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+        drain.getValue().run();
+        assertTrue(subscriber.getOnErrorEvents().isEmpty());
+        return subscriber;
+    }
+
+    private static class RequestingSubscriber extends TestSubscriber<Integer> {
+
+        private final long initialRequest;
+
+        RequestingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onStart() {
+            request(initialRequest);
+        }
+    }
+}
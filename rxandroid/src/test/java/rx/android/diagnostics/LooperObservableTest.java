@@ -0,0 +1,134 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class LooperObservableTest {
+
+    private Handler handler;
+    private TestScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.getMainLooper());
+        scheduler = new TestScheduler();
+    }
+
+    @Test
+    public void shouldNotReportLooperThatKeepsUp() {
+        TestSubscriber<LooperStallEvent> subscriber = new TestSubscriber<LooperStallEvent>();
+        LooperObservable.stalls(handler, 100, TimeUnit.MILLISECONDS, false, scheduler).subscribe(subscriber);
+
+        ArgumentCaptor<Runnable> heartbeat = ArgumentCaptor.forClass(Runnable.class);
+        for (int i = 1; i <= 10; i++) {
+            advance(50);
+            verify(handler, times(i)).post(heartbeat.capture());
+            heartbeat.getValue().run();
+        }
+
+        assertEquals(0, subscriber.getOnNextEvents().size());
+    }
+
+    @Test
+    public void shouldReportStallOncePastThreshold() {
+        TestSubscriber<LooperStallEvent> subscriber = new TestSubscriber<LooperStallEvent>();
+        LooperObservable.stalls(handler, 100, TimeUnit.MILLISECONDS, false, scheduler).subscribe(subscriber);
+
+        advance(50);
+        ArgumentCaptor<Runnable> heartbeat = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(heartbeat.capture());
+
+        // the heartbeat is not handled for a while
+        advance(50);
+        assertEquals(0, subscriber.getOnNextEvents().size());
+        advance(50);
+        advance(50);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        LooperStallEvent event = subscriber.getOnNextEvents().get(0);
+        assertEquals(100, event.stallMillis());
+        assertEquals(100, event.thresholdMillis());
+        assertEquals(0, event.stackTrace().size());
+
+        // once the Looper recovers, the next stall is reported again
+        heartbeat.getValue().run();
+        advance(50);
+        verify(handler, times(2)).post(heartbeat.getValue());
+        advance(150);
+        assertEquals(2, subscriber.getOnNextEvents().size());
+    }
+
+    @Test
+    public void shouldSampleStackTraceOfLooperThread() {
+        TestSubscriber<LooperStallEvent> subscriber = new TestSubscriber<LooperStallEvent>();
+        LooperObservable.stalls(handler, 100, TimeUnit.MILLISECONDS, true, scheduler).subscribe(subscriber);
+
+        advance(150);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertFalse(subscriber.getOnNextEvents().get(0).stackTrace().isEmpty());
+    }
+
+    @Test
+    public void shouldShareOneWatchdogBetweenSubscribers() {
+        Observable<LooperStallEvent> stalls = LooperObservable.stalls(handler, 100, TimeUnit.MILLISECONDS, false, scheduler);
+        TestSubscriber<LooperStallEvent> first = new TestSubscriber<LooperStallEvent>();
+        TestSubscriber<LooperStallEvent> second = new TestSubscriber<LooperStallEvent>();
+        Subscription firstSubscription = stalls.subscribe(first);
+        Subscription secondSubscription = stalls.subscribe(second);
+
+        advance(150);
+        verify(handler, times(1)).post(Matchers.any(Runnable.class));
+        assertEquals(1, first.getOnNextEvents().size());
+        assertEquals(1, second.getOnNextEvents().size());
+
+        firstSubscription.unsubscribe();
+        secondSubscription.unsubscribe();
+        verify(handler).removeCallbacks(Matchers.any(Runnable.class));
+    }
+
+    // moves the uptime clock and the watchdog's scheduler forward together
+    private void advance(long millis) {
+        for (long i = 0; i < millis; i++) {
+            SystemClock.sleep(1);
+            scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.diagnostics;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Printer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class OnSubscribeLooperDispatchTest {
+
+    @Test
+    public void shouldParseTargetCallbackAndWhat() {
+        LooperDispatchEvent event = OnSubscribeLooperDispatch.parse(
+                ">>>>> Dispatching to Handler (android.view.Choreographer$FrameHandler) {41a8c6e0} "
+                        + "android.view.Choreographer$FrameDisplayEventReceiver@41a8d1c8: 0", 10, 25);
+
+        assertEquals(LooperDispatchEvent.create("android.view.Choreographer$FrameHandler",
+                "android.view.Choreographer$FrameDisplayEventReceiver", 0, 10, 25), event);
+        assertEquals(15, event.durationMillis());
+    }
+
+    @Test
+    public void shouldParseMessageWithoutCallback() {
+        LooperDispatchEvent event = OnSubscribeLooperDispatch.parse(
+                ">>>>> Dispatching to Handler (android.app.ActivityThread$H) {41a6bb10} null: 100", 0, 0);
+
+        assertEquals("android.app.ActivityThread$H", event.target());
+        assertEquals("", event.callback());
+        assertEquals(100, event.what());
+    }
+
+    @Test
+    public void shouldEmitSampledMessagesThatTookAtLeastMinimumDuration() throws Exception {
+        TestSubscriber<LooperDispatchEvent> subscriber = new TestSubscriber<LooperDispatchEvent>();
+        Subscription subscription = LooperObservable.dispatches(Looper.myLooper(), 2, 5, TimeUnit.MILLISECONDS)
+                .subscribe(subscriber);
+        Printer printer = messageLogging(Looper.myLooper());
+
+        // every second message is timed, and only the slow one of those is emitted
+        dispatch(printer, "A", 10);
+        dispatch(printer, "B", 10);
+        dispatch(printer, "C", 10);
+        dispatch(printer, "D", 1);
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals("B", subscriber.getOnNextEvents().get(0).target());
+        assertEquals(10, subscriber.getOnNextEvents().get(0).durationMillis());
+
+        subscription.unsubscribe();
+        assertNull(messageLogging(Looper.myLooper()));
+    }
+
+    private static void dispatch(Printer printer, String target, long durationMillis) {
+        printer.println(">>>>> Dispatching to Handler (" + target + ") {41a8c6e0} null: 0");
+        SystemClock.sleep(durationMillis);
+        printer.println("<<<<< Finished to Handler (" + target + ") {41a8c6e0} null");
+    }
+
+    private static Printer messageLogging(Looper looper) throws Exception {
+        Field logging = Looper.class.getDeclaredField("mLogging");
+        logging.setAccessible(true);
+        return (Printer) logging.get(looper);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.plugins;
+
+import android.os.Handler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import rx.Scheduler;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RxAndroidPluginsTest {
+
+    @Before
+    @After
+    public void resetPlugins() {
+        RxAndroidPlugins.getInstance().reset();
+    }
+
+    @Test
+    public void shouldUseDefaultHookWhenNoneIsRegistered() {
+        assertSame(RxAndroidSchedulersHook.getDefaultInstance(), new RxAndroidPlugins().getSchedulersHook());
+    }
+
+    @Test
+    public void shouldReturnRegisteredHook() {
+        RxAndroidPlugins plugins = new RxAndroidPlugins();
+        RxAndroidSchedulersHook hook = new RxAndroidSchedulersHook() {
+        };
+        plugins.registerSchedulersHook(hook);
+
+        assertSame(hook, plugins.getSchedulersHook());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectHookAfterDefaultWasUsed() {
+        RxAndroidPlugins plugins = new RxAndroidPlugins();
+        plugins.getSchedulersHook();
+        plugins.registerSchedulersHook(new RxAndroidSchedulersHook() {
+        });
+    }
+
+    @Test
+    public void shouldPassMainThreadSchedulerThroughHook() {
+        final Scheduler defaultScheduler = AndroidSchedulers.mainThread();
+        RxAndroidPlugins.getInstance().reset();
+        RxAndroidPlugins.getInstance().registerSchedulersHook(new RxAndroidSchedulersHook() {
+            @Override
+            public Scheduler onMainThreadScheduler(Scheduler scheduler) {
+                assertSame(defaultScheduler, scheduler);
+                return Schedulers.immediate();
+            }
+        });
+
+        assertSame(Schedulers.immediate(), AndroidSchedulers.mainThread());
+    }
+
+    @Test
+    public void shouldPassHandlerThreadSchedulersThroughHook() {
+        RxAndroidPlugins.getInstance().registerSchedulersHook(new RxAndroidSchedulersHook() {
+            @Override
+            public Scheduler onHandlerThreadScheduler(Scheduler scheduler) {
+                assertNotSame(Schedulers.immediate(), scheduler);
+                return Schedulers.immediate();
+            }
+        });
+
+        assertSame(Schedulers.immediate(), AndroidSchedulers.handlerThread(mock(Handler.class)));
+        assertSame(Schedulers.immediate(), AndroidSchedulers.handlerThread(mock(Handler.class), true));
+    }
+}
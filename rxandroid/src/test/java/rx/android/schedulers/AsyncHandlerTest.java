@@ -0,0 +1,59 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import rx.android.ShadowTokenHandler;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, shadows = ShadowTokenHandler.class)
+public class AsyncHandlerTest {
+
+    @Test
+    public void shouldMarkMessagesAsynchronous() throws Exception {
+        final AsyncHandler handler = new AsyncHandler(Looper.getMainLooper());
+        final Message message = Message.obtain(handler, 0);
+
+        assertTrue(AsyncHandler.isSupported());
+        handler.sendMessageAtTime(message, SystemClock.uptimeMillis() + 1000);
+
+        assertTrue((Boolean) Message.class.getMethod("isAsynchronous").invoke(message));
+        handler.removeMessages(0);
+    }
+
+    @Test
+    public void shouldRunActionsOnMainThreadAsync() {
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        AndroidSchedulers.mainThreadAsync().createWorker().schedule(action);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(action).call();
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.Scheduler.Worker;
+import rx.functions.Action0;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FrameSchedulerTest {
+
+    @Test
+    public void shouldRunActionsOfAllWorkersInTheSameFrame() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 first = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 second = mock(Action0.class);
+
+        Scheduler scheduler = new FrameScheduler(handler, false);
+        scheduler.createWorker().schedule(first);
+        scheduler.createWorker().schedule(second);
+
+        // verify that a single frame is requested
+        ArgumentCaptor<Runnable> frame = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).postAtTime(frame.capture(), anyLong());
+        verify(first, never()).call();
+
+        frame.getValue().run();
+        InOrder inOrder = inOrder(first, second);
+        inOrder.verify(first).call();
+        inOrder.verify(second).call();
+    }
+
+    @Test
+    public void shouldDeferActionsScheduledDuringFrameToNextFrame() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 next = mock(Action0.class);
+
+        Scheduler scheduler = new FrameScheduler(handler, false);
+        final Worker worker = scheduler.createWorker();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                worker.schedule(next);
+            }
+        });
+
+        ArgumentCaptor<Runnable> frame = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(frame.capture(), anyLong());
+        frame.getValue().run();
+        verify(next, never()).call();
+
+        verify(handler, times(2)).postAtTime(frame.capture(), anyLong());
+        frame.getValue().run();
+        verify(next).call();
+    }
+
+    @Test
+    public void shouldNotRunActionsOfUnsubscribedWorker() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new FrameScheduler(handler, false);
+        Worker worker = scheduler.createWorker();
+        worker.schedule(action);
+        worker.unsubscribe();
+
+        ArgumentCaptor<Runnable> frame = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(frame.capture(), anyLong());
+        frame.getValue().run();
+        verify(action, never()).call();
+    }
+
+    @Test
+    public void shouldQueueDelayedActionForFrameAfterDelay() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new FrameScheduler(handler, false);
+        scheduler.createWorker().schedule(action, 1L, TimeUnit.SECONDS);
+
+        ArgumentCaptor<Runnable> delayed = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(delayed.capture(), eq(1000L));
+        verify(handler, never()).postAtTime(Matchers.any(Runnable.class), anyLong());
+
+        delayed.getValue().run();
+        ArgumentCaptor<Runnable> frame = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(frame.capture(), anyLong());
+
+        frame.getValue().run();
+        verify(action).call();
+    }
+
+    @Test
+    public void shouldRunActionInMainThreadFrame() {
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        AndroidSchedulers.frame().createWorker().schedule(action);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        verify(action).call();
+    }
+
+    @Test
+    public void shouldRunActionsOfConsecutiveMainThreadFrames() {
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        // the second frame goes through the frame callback's cached method
+        Worker inner = AndroidSchedulers.frame().createWorker();
+        inner.schedule(action);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        inner.schedule(action);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        verify(action, times(2)).call();
+    }
+}
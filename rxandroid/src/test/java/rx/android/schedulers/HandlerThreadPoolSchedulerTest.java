@@ -0,0 +1,253 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler.Worker;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class HandlerThreadPoolSchedulerTest {
+
+    @Test
+    public void shouldKeepWorkerOnItsThread() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(2);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action);
+        inner.schedule(action);
+        inner.schedule(action, 1, TimeUnit.SECONDS);
+
+        assertEquals(1, scheduler.handlers.size());
+        Handler handler = scheduler.handlers.get(0);
+        verify(handler, times(2)).postDelayed(Matchers.any(Runnable.class), eq(0L));
+        verify(handler).postDelayed(Matchers.any(Runnable.class), eq(1000L));
+        assertEquals(2, scheduler.getBacklog());
+    }
+
+    @Test
+    public void shouldReuseThreadWithoutBacklog() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(2);
+
+        scheduler.createWorker();
+        scheduler.createWorker();
+
+        assertEquals(1, scheduler.getPoolSize());
+    }
+
+    @Test
+    public void shouldGrowWhileAllThreadsHaveBacklogUpToMaximum() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(2);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        scheduler.createWorker().schedule(action);
+        Worker second = scheduler.createWorker();
+        assertEquals(2, scheduler.getPoolSize());
+
+        second.schedule(action);
+        scheduler.createWorker();
+        assertEquals(2, scheduler.getPoolSize());
+        assertEquals(2, scheduler.getLargestPoolSize());
+    }
+
+    @Test
+    public void shouldAssignLeastLoadedThread() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(2);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker first = scheduler.createWorker();
+        first.schedule(action);
+        first.schedule(action);
+        scheduler.createWorker().schedule(action);
+        assertEquals(2, scheduler.getPoolSize());
+
+        // the second thread has the smaller backlog
+        scheduler.createWorker().schedule(action);
+        verify(scheduler.handlers.get(1), times(2)).postDelayed(Matchers.any(Runnable.class), eq(0L));
+    }
+
+    @Test
+    public void shouldReduceBacklogWhenActionsRunOrAreCancelled() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(1);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action);
+        inner.schedule(action).unsubscribe();
+        assertEquals(1, scheduler.getBacklog());
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler.handlers.get(0), times(2)).postDelayed(runnable.capture(), eq(0L));
+        runnable.getAllValues().get(0).run();
+        verify(action).call();
+        assertEquals(0, scheduler.getBacklog());
+    }
+
+    @Test
+    public void shouldQuitThreadAfterKeepAliveWithoutWorkers() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(1);
+
+        Worker inner = scheduler.createWorker();
+        inner.unsubscribe();
+
+        Handler handler = scheduler.handlers.get(0);
+        ArgumentCaptor<Runnable> expire = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(expire.capture(), eq(60000L));
+
+        expire.getValue().run();
+        assertTrue(scheduler.quit.contains(handler));
+        assertEquals(0, scheduler.getPoolSize());
+
+        // a new worker starts a new thread
+        scheduler.createWorker();
+        assertEquals(2, scheduler.handlers.size());
+        assertEquals(1, scheduler.getPoolSize());
+    }
+
+    @Test
+    public void shouldKeepThreadThatGotNewWorkerBeforeKeepAliveExpired() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(1);
+
+        scheduler.createWorker().unsubscribe();
+        Handler handler = scheduler.handlers.get(0);
+        ArgumentCaptor<Runnable> expire = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(expire.capture(), eq(60000L));
+
+        scheduler.createWorker();
+        InOrder inOrder = inOrder(handler);
+        inOrder.verify(handler).postDelayed(expire.getValue(), 60000L);
+        inOrder.verify(handler).removeCallbacks(expire.getValue());
+
+        expire.getValue().run();
+        assertEquals(0, scheduler.quit.size());
+        assertEquals(1, scheduler.getPoolSize());
+    }
+
+    @Test
+    public void shouldNotPostFromWorkersWhoseThreadWasShutDown() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(1);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker inner = scheduler.createWorker();
+        scheduler.shutdown();
+        Handler handler = scheduler.handlers.get(0);
+        assertEquals(1, scheduler.quit.size());
+        assertTrue(scheduler.quit.contains(handler));
+
+        inner.schedule(action);
+        inner.unsubscribe();
+
+        assertEquals(1, scheduler.handlers.size());
+        verify(handler, never()).postDelayed(Matchers.any(Runnable.class), Matchers.anyLong());
+        assertEquals(0, scheduler.getBacklog());
+    }
+
+    @Test
+    public void shouldStartThreadsOutsideTheSchedulersLock() {
+        TestPoolScheduler scheduler = new TestPoolScheduler(2);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        scheduler.createWorker().schedule(action);
+        scheduler.createWorker();
+
+        assertEquals(2, scheduler.handlers.size());
+        assertFalse(scheduler.startedWithLock);
+    }
+
+    @Test
+    public void shouldReleaseWorkerOnceWhenUnsubscribedConcurrently() throws InterruptedException {
+        TestPoolScheduler scheduler = new TestPoolScheduler(1);
+        final Worker inner = scheduler.createWorker();
+        scheduler.createWorker();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        inner.unsubscribe();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // the other worker still holds on to the thread
+        verify(scheduler.handlers.get(0), never()).postDelayed(Matchers.any(Runnable.class), eq(60000L));
+    }
+
+    private static class TestPoolScheduler extends HandlerThreadPoolScheduler {
+
+        final List<Handler> handlers = new ArrayList<Handler>();
+        final List<Handler> quit = new ArrayList<Handler>();
+        volatile boolean startedWithLock;
+
+        TestPoolScheduler(int maxThreads) {
+            super("test", maxThreads, 1, TimeUnit.MINUTES);
+        }
+
+        @Override
+        Handler startThread(String threadName) {
+            startedWithLock |= Thread.holdsLock(this);
+            Handler handler = mock(Handler.class);
+            handlers.add(handler);
+            return handler;
+        }
+
+        @Override
+        void quit(Handler handler) {
+            quit.add(handler);
+        }
+    }
+}
@@ -14,15 +14,20 @@
 package rx.android.schedulers;
 
 import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
@@ -30,17 +35,24 @@ import rx.Scheduler;
 import rx.Scheduler.Worker;
 import rx.Subscriber;
 import rx.Subscription;
+import rx.android.ShadowTokenHandler;
+import rx.android.TestUtil;
 import rx.functions.Action0;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
-@Config(manifest=Config.NONE)
+@Config(manifest=Config.NONE, shadows=ShadowTokenHandler.class)
 public class HandlerThreadSchedulerTest {
 
     @Test
@@ -55,7 +67,7 @@ public class HandlerThreadSchedulerTest {
 
         // verify that we post to the given Handler
         ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
-        verify(handler).postDelayed(runnable.capture(), eq(0L));
+        verify(handler).postAtTime(runnable.capture(), Matchers.any(), eq(SystemClock.uptimeMillis()));
 
         // verify that the given handler delegates to our action
         runnable.getValue().run();
@@ -74,7 +86,7 @@ public class HandlerThreadSchedulerTest {
 
         // verify that we post to the given Handler
         ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
-        verify(handler).postDelayed(runnable.capture(), eq(1000L));
+        verify(handler).postAtTime(runnable.capture(), Matchers.any(), eq(SystemClock.uptimeMillis() + 1000L));
 
         // verify that the given handler delegates to our action
         runnable.getValue().run();
@@ -92,7 +104,10 @@ public class HandlerThreadSchedulerTest {
 
         subscription.unsubscribe();
 
-        verify(handler).removeCallbacks(Matchers.any(Runnable.class));
+        // the worker posts its messages with itself as the token
+        ArgumentCaptor<Object> worker = ArgumentCaptor.forClass(Object.class);
+        verify(handler).postAtTime(Matchers.any(Runnable.class), worker.capture(), Matchers.anyLong());
+        verify(handler).removeCallbacksAndMessages(worker.getValue());
     }
 
     @Test
@@ -112,14 +127,426 @@ public class HandlerThreadSchedulerTest {
 
         verify(worker).schedule(Matchers.any(Action0.class),
                 Matchers.eq(1L), Matchers.eq(TimeUnit.MINUTES));
-        verify(handler).postDelayed(Matchers.any(Runnable.class),
-                Matchers.eq(TimeUnit.MINUTES.toMillis(1L)));
+        verify(handler).postAtTime(Matchers.any(Runnable.class), Matchers.any(),
+                Matchers.eq(SystemClock.uptimeMillis() + TimeUnit.MINUTES.toMillis(1L)));
 
         subscription.unsubscribe();
 
         Robolectric.runUiThreadTasksIncludingDelayedTasks();
 
         verify(onSubscribe, never()).call(Matchers.any(Subscriber.class));
-        verify(handler).removeCallbacks(Matchers.any(Runnable.class));
+        verify(handler).removeCallbacksAndMessages(worker);
+    }
+
+    @Test
+    public void shouldDrainBatchedActionsFromSingleMessage() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 first = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 second = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 third = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(first);
+        inner.schedule(second);
+        inner.schedule(third);
+
+        // verify that only one message is posted for all three actions
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).postAtTime(runnable.capture(), Matchers.any(), Matchers.anyLong());
+
+        // verify that the message runs all actions in order
+        runnable.getValue().run();
+        InOrder inOrder = inOrder(first, second, third);
+        inOrder.verify(first).call();
+        inOrder.verify(second).call();
+        inOrder.verify(third).call();
+    }
+
+    @Test
+    public void shouldSkipUnsubscribedBatchedActions() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action).unsubscribe();
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(runnable.capture(), Matchers.any(), Matchers.anyLong());
+
+        runnable.getValue().run();
+        verify(action, never()).call();
+    }
+
+    @Test
+    public void shouldPostDelayedBatchedActionsIndividually() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action, 1L, TimeUnit.SECONDS);
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).postAtTime(runnable.capture(), Matchers.any(), eq(SystemClock.uptimeMillis() + 1000L));
+
+        runnable.getValue().run();
+        verify(action).call();
+    }
+
+    @Test
+    public void shouldRemoveDrainMessageWhenBatchedWorkerUnsubscribed() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action);
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(runnable.capture(), eq(inner), Matchers.anyLong());
+
+        inner.unsubscribe();
+        verify(handler).removeCallbacksAndMessages(inner);
+
+        runnable.getValue().run();
+        verify(action, never()).call();
+    }
+
+    @Test
+    public void shouldRunImmediateActionInPlaceOnHandlerThread() {
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true, true);
+        scheduler.createWorker().schedule(action);
+
+        verify(action).call();
+        verify(handler, never()).postAtTime(Matchers.any(Runnable.class), Matchers.any(), Matchers.anyLong());
+    }
+
+    @Test
+    public void shouldPostImmediateActionFromOtherThread() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true, true);
+        scheduler.createWorker().schedule(action);
+
+        verify(action, never()).call();
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(runnable.capture(), Matchers.any(), Matchers.anyLong());
+
+        runnable.getValue().run();
+        verify(action).call();
+    }
+
+    @Test
+    public void shouldKeepOrderOfImmediateActionsBehindQueuedOnes() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 queued = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true, true);
+        Worker inner = scheduler.createWorker();
+        // not on the handler thread yet, so this one gets posted
+        inner.schedule(queued);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        inner.schedule(action);
+
+        verify(action, never()).call();
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).postAtTime(runnable.capture(), Matchers.any(), Matchers.anyLong());
+
+        runnable.getValue().run();
+        InOrder inOrder = inOrder(queued, action);
+        inOrder.verify(queued).call();
+        inOrder.verify(action).call();
+    }
+
+    @Test
+    public void shouldRunActionsScheduledFromImmediateActionAfterIt() {
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        @SuppressWarnings("unchecked")
+        final Action0 nested = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 after = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler, true, true);
+        final Worker inner = scheduler.createWorker();
+        inner.schedule(new Action0() {
+            @Override
+            public void call() {
+                inner.schedule(nested);
+                verify(nested, never()).call();
+                after.call();
+            }
+        });
+
+        // the nested action was queued while draining, so it is left to a drain message of its own
+        verify(nested, never()).call();
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).postAtTime(runnable.capture(), eq(inner), Matchers.anyLong());
+
+        runnable.getValue().run();
+        InOrder inOrder = inOrder(after, nested);
+        inOrder.verify(after).call();
+        inOrder.verify(nested).call();
+    }
+
+    @Test
+    public void shouldLetOtherMessagesRunBetweenSelfReschedulingBatchedActions() {
+        final Handler handler = new Handler();
+        final List<String> events = new ArrayList<String>();
+        Robolectric.pauseMainLooper();
+
+        final Worker inner = new HandlerThreadScheduler(handler, true).createWorker();
+        inner.schedule(new Action0() {
+            @Override
+            public void call() {
+                events.add("action");
+                if (events.size() < 5) {
+                    inner.schedule(this);
+                }
+            }
+        });
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                events.add("other");
+            }
+        });
+
+        Robolectric.unPauseMainLooper();
+        Robolectric.runUiThreadTasks();
+
+        assertEquals(5, events.size());
+        assertEquals("action", events.get(0));
+        assertEquals("other", events.get(1));
+        assertEquals("action", events.get(2));
+    }
+
+    @Test
+    public void shouldRemoveAllPendingActionsWithSingleCallWhenWorkerUnsubscribed() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Scheduler scheduler = new HandlerThreadScheduler(handler);
+        Worker inner = scheduler.createWorker();
+        for (int i = 0; i < 100; i++) {
+            inner.schedule(action, i, TimeUnit.SECONDS);
+        }
+
+        // all messages of a worker carry the worker as their token
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Object> token = ArgumentCaptor.forClass(Object.class);
+        verify(handler, times(100)).postAtTime(runnable.capture(), token.capture(), Matchers.anyLong());
+        for (Object posted : token.getAllValues()) {
+            assertSame(inner, posted);
+        }
+
+        inner.unsubscribe();
+        verify(handler).removeCallbacksAndMessages(inner);
+        verify(handler, never()).removeCallbacks(Matchers.any(Runnable.class), Matchers.any());
+
+        runnable.getValue().run();
+        verify(action, never()).call();
+    }
+
+    @Test
+    public void shouldRemoveMessageOfUnsubscribedActionRightAway() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        Subscription subscription = inner.schedule(action, 1, TimeUnit.MINUTES);
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(runnable.capture(), eq(inner), Matchers.anyLong());
+
+        // only the message of this action is removed, not those of the whole worker
+        subscription.unsubscribe();
+        verify(handler).removeCallbacks(runnable.getValue(), inner);
+        verify(handler, never()).removeCallbacksAndMessages(Matchers.any());
+    }
+
+    @Test
+    public void shouldSkipUnsubscribedActionAndRunOthersInDueOrder() {
+        final Handler handler = new Handler();
+        @SuppressWarnings("unchecked")
+        final Action0 late = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 cancelled = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 early = mock(Action0.class);
+
+        Robolectric.pauseMainLooper();
+        Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        inner.schedule(late, 200, TimeUnit.MILLISECONDS);
+        Subscription subscription = inner.schedule(cancelled, 100, TimeUnit.MILLISECONDS);
+        inner.schedule(early);
+        subscription.unsubscribe();
+        assertTrue(subscription.isUnsubscribed());
+
+        Robolectric.unPauseMainLooper();
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+        InOrder inOrder = inOrder(early, late);
+        inOrder.verify(early).call();
+        inOrder.verify(late).call();
+        verify(cancelled, never()).call();
+    }
+
+    @Test
+    public void shouldRunPeriodicActionAtFixedDeadlines() {
+        final Handler handler = new Handler();
+        final List<Long> runTimes = new ArrayList<Long>();
+        final Action0 action = new Action0() {
+            @Override
+            public void call() {
+                runTimes.add(SystemClock.uptimeMillis());
+            }
+        };
+
+        Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        final long start = SystemClock.uptimeMillis();
+        // 60 Hz, which is not a whole number of milliseconds
+        inner.schedulePeriodically(action, 0, 16666667, TimeUnit.NANOSECONDS);
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+
+        // every run happens in the first millisecond that is not before its deadline
+        assertEquals(60, runTimes.size());
+        for (int i = 0; i < runTimes.size(); i++) {
+            assertEquals(start + (i * 16666667L + 999999) / 1000000, (long) runTimes.get(i));
+        }
+    }
+
+    @Test
+    public void shouldSkipMissedPeriodsToStayInPhase() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        final long start = SystemClock.uptimeMillis();
+        inner.schedulePeriodically(action, 10, 10, TimeUnit.MILLISECONDS);
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(runnable.capture(), eq(inner), eq(start + 10));
+
+        // the thread was busy until 35ms, so the run for 30ms is dropped
+        Robolectric.getUiThreadScheduler().advanceTo(start + 35);
+        runnable.getValue().run();
+        verify(action).call();
+        verify(handler).postAtTime(runnable.getValue(), inner, start + 40);
+    }
+
+    @Test
+    public void shouldStopPeriodicActionWhenUnsubscribed() {
+        final Handler handler = new Handler();
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        Subscription subscription = inner.schedulePeriodically(action, 0, 10, TimeUnit.MILLISECONDS);
+        Robolectric.getUiThreadScheduler().advanceBy(25);
+        verify(action, times(3)).call();
+
+        subscription.unsubscribe();
+        Robolectric.getUiThreadScheduler().advanceBy(100);
+        verify(action, times(3)).call();
+    }
+
+    @Test
+    public void shouldNameActionInMessageCallbackDescription() {
+        final Action0 action = new Action0() {
+            @Override
+            public void call() {
+            }
+        };
+        final Handler handler = mock(Handler.class);
+
+        Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        inner.schedule(action, 1, TimeUnit.SECONDS);
+
+        // this is what the Looper logs as the callback of the message
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postAtTime(runnable.capture(), eq(inner), Matchers.anyLong());
+        assertTrue(runnable.getValue().toString().contains(action.getClass().getName()));
+    }
+
+    @Test
+    public void shouldAllocateOneTaskPerScheduledAction() {
+        final Handler handler = new Handler();
+        final Worker inner = new HandlerThreadScheduler(handler).createWorker();
+        final Object token = new Object();
+        final Action0 action = new Action0() {
+            @Override
+            public void call() {
+            }
+        };
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                action.call();
+            }
+        };
+
+        // the handler and the shadowed clock allocate on their own, so measure reading the clock
+        // and posting a runnable with a token directly as a baseline
+        long baseline = Long.MAX_VALUE;
+        long scheduled = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = TestUtil.allocatedBytes();
+            for (int i = 0; i < 10000; i++) {
+                handler.postAtTime(runnable, token, SystemClock.uptimeMillis());
+            }
+            baseline = Math.min(baseline, TestUtil.allocatedBytes() - start);
+
+            start = TestUtil.allocatedBytes();
+            for (int i = 0; i < 10000; i++) {
+                inner.schedule(action);
+            }
+            scheduled = Math.min(scheduled, TestUtil.allocatedBytes() - start);
+        }
+
+        // a task object with a handful of fields, nothing else
+        assertTrue("allocated " + (scheduled - baseline) / 10000 + " bytes per action", (scheduled - baseline) / 10000 <= 48);
+    }
+
+    @Test
+    public void shouldAllocateOneTaskPerBatchedAction() {
+        final Handler handler = new Handler();
+        final Worker inner = new HandlerThreadScheduler(handler, true).createWorker();
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        Robolectric.pauseMainLooper();
+        // the first action posts the drain message, all others just get queued
+        inner.schedule(action);
+        final long start = TestUtil.allocatedBytes();
+        for (int i = 0; i < 10000; i++) {
+            inner.schedule(action);
+        }
+        final long allocated = TestUtil.allocatedBytes() - start;
+        Robolectric.unPauseMainLooper();
+
+        assertTrue("allocated " + allocated / 10000 + " bytes per action", allocated / 10000 <= 48);
+        verify(action, times(10001)).call();
     }
 }
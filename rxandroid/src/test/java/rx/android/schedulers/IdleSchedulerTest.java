@@ -0,0 +1,176 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler.Worker;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class IdleSchedulerTest {
+
+    @Test
+    public void shouldRunOneActionPerIdleCallback() {
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        @SuppressWarnings("unchecked")
+        final Action0 first = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 second = mock(Action0.class);
+
+        TestIdleScheduler scheduler = new TestIdleScheduler(handler);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(first);
+        inner.schedule(second);
+
+        // verify that the idle handler is registered once and nothing runs before the queue is idle
+        assertEquals(1, scheduler.idleHandlers.size());
+        verify(first, never()).call();
+
+        MessageQueue.IdleHandler idleHandler = scheduler.idleHandlers.get(0);
+        assertTrue(idleHandler.queueIdle());
+        verify(first).call();
+        verify(second, never()).call();
+
+        assertFalse(idleHandler.queueIdle());
+        InOrder inOrder = inOrder(first, second);
+        inOrder.verify(first).call();
+        inOrder.verify(second).call();
+        assertEquals(2, scheduler.getExecutedCount());
+    }
+
+    @Test
+    public void shouldRegisterFromHandlerThreadWhenScheduledFromOtherThread() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        TestIdleScheduler scheduler = new TestIdleScheduler(handler);
+        scheduler.createWorker().schedule(action);
+        assertEquals(0, scheduler.idleHandlers.size());
+
+        ArgumentCaptor<Runnable> register = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(register.capture());
+        register.getValue().run();
+        assertEquals(1, scheduler.idleHandlers.size());
+    }
+
+    @Test
+    public void shouldRunActionWhenMaxDeferralExpires() {
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        TestIdleScheduler scheduler = new TestIdleScheduler(handler, 100, TimeUnit.MILLISECONDS);
+        scheduler.createWorker().schedule(action);
+
+        ArgumentCaptor<Runnable> deadline = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(deadline.capture(), eq(100L));
+
+        SystemClock.sleep(100);
+        deadline.getValue().run();
+        verify(action).call();
+        assertEquals(1, scheduler.getExpiredCount());
+        assertEquals(100, scheduler.getMaxWaitMillis());
+
+        // the idle handler finds the action done and unregisters
+        assertFalse(scheduler.idleHandlers.get(0).queueIdle());
+        verify(action).call();
+        verify(handler).removeCallbacks(deadline.getValue());
+    }
+
+    @Test
+    public void shouldNotRunActionsOfUnsubscribedWorker() {
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        TestIdleScheduler scheduler = new TestIdleScheduler(handler);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action);
+        inner.unsubscribe();
+
+        assertFalse(scheduler.idleHandlers.get(0).queueIdle());
+        verify(action, never()).call();
+        assertEquals(0, scheduler.getExecutedCount());
+    }
+
+    @Test
+    public void shouldReportWaitTimes() {
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(Looper.myLooper());
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        TestIdleScheduler scheduler = new TestIdleScheduler(handler);
+        Worker inner = scheduler.createWorker();
+        inner.schedule(action);
+        SystemClock.sleep(20);
+        inner.schedule(action);
+        SystemClock.sleep(10);
+
+        MessageQueue.IdleHandler idleHandler = scheduler.idleHandlers.get(0);
+        idleHandler.queueIdle();
+        idleHandler.queueIdle();
+        assertEquals(2, scheduler.getExecutedCount());
+        assertEquals(40, scheduler.getTotalWaitMillis());
+        assertEquals(30, scheduler.getMaxWaitMillis());
+    }
+
+    private static class TestIdleScheduler extends IdleScheduler {
+
+        final List<MessageQueue.IdleHandler> idleHandlers = new ArrayList<MessageQueue.IdleHandler>();
+
+        TestIdleScheduler(Handler handler) {
+            super(handler);
+        }
+
+        TestIdleScheduler(Handler handler, long maxDeferral, TimeUnit unit) {
+            super(handler, maxDeferral, unit);
+        }
+
+        @Override
+        void addIdleHandler(MessageQueue.IdleHandler idleHandler) {
+            idleHandlers.add(idleHandler);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Scheduler.Worker;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PrioritySchedulerTest {
+
+    @Test
+    public void shouldRunHigherPriorityActionsFirst() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 background = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 normal = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 input = mock(Action0.class);
+
+        PriorityScheduler scheduler = new PriorityScheduler(handler);
+        scheduler.lane(Priority.BACKGROUND).createWorker().schedule(background);
+        scheduler.lane(Priority.NORMAL).createWorker().schedule(normal);
+        scheduler.lane(Priority.INPUT).createWorker().schedule(input);
+
+        // verify that all lanes share a single drain message
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).post(drain.capture());
+
+        drain.getValue().run();
+        InOrder inOrder = inOrder(input, normal, background);
+        inOrder.verify(input).call();
+        inOrder.verify(normal).call();
+        inOrder.verify(background).call();
+    }
+
+    @Test
+    public void shouldLetInputActionOvertakeQueuedActions() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 queued = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 input = mock(Action0.class);
+
+        PriorityScheduler scheduler = new PriorityScheduler(handler);
+        final Worker inputWorker = scheduler.lane(Priority.INPUT).createWorker();
+        Worker normalWorker = scheduler.lane(Priority.NORMAL).createWorker();
+        normalWorker.schedule(new Action0() {
+            @Override
+            public void call() {
+                inputWorker.schedule(input);
+            }
+        });
+        normalWorker.schedule(queued);
+
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+
+        // the input action takes the place of the queued one in this drain, which posts itself
+        // again for the rest
+        drain.getValue().run();
+        verify(input).call();
+        verify(queued, never()).call();
+        verify(handler, times(2)).post(drain.getValue());
+
+        drain.getValue().run();
+        InOrder inOrder = inOrder(input, queued);
+        inOrder.verify(input).call();
+        inOrder.verify(queued).call();
+    }
+
+    @Test
+    public void shouldLetOtherMessagesRunBetweenSelfReschedulingNormalActions() {
+        final Handler handler = new Handler();
+        final List<String> events = new ArrayList<String>();
+        Robolectric.pauseMainLooper();
+
+        PriorityScheduler scheduler = new PriorityScheduler(handler);
+        final Worker inner = scheduler.lane(Priority.NORMAL).createWorker();
+        inner.schedule(new Action0() {
+            @Override
+            public void call() {
+                events.add("action");
+                if (events.size() < 5) {
+                    inner.schedule(this);
+                }
+            }
+        });
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                events.add("other");
+            }
+        });
+
+        Robolectric.unPauseMainLooper();
+        Robolectric.runUiThreadTasks();
+
+        assertEquals(5, events.size());
+        assertEquals("action", events.get(0));
+        assertEquals("other", events.get(1));
+        assertEquals("action", events.get(2));
+    }
+
+    @Test
+    public void shouldRunOneBackgroundActionPerMessage() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 first = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 second = mock(Action0.class);
+
+        PriorityScheduler scheduler = new PriorityScheduler(handler);
+        Worker inner = scheduler.lane(Priority.BACKGROUND).createWorker();
+        inner.schedule(first);
+        inner.schedule(second);
+
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+
+        drain.getValue().run();
+        verify(first).call();
+        verify(second, never()).call();
+        verify(handler, times(2)).post(drain.getValue());
+
+        drain.getValue().run();
+        verify(second).call();
+        verify(handler, times(2)).post(drain.getValue());
+    }
+
+    @Test
+    public void shouldNotRunActionsOfUnsubscribedWorker() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        PriorityScheduler scheduler = new PriorityScheduler(handler);
+        Worker inner = scheduler.lane(Priority.NORMAL).createWorker();
+        inner.schedule(action);
+        inner.unsubscribe();
+
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(drain.capture());
+        drain.getValue().run();
+        verify(action, never()).call();
+    }
+}
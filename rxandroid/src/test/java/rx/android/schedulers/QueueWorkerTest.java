@@ -0,0 +1,84 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.internal.schedulers.ScheduledAction;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class QueueWorkerTest {
+
+    @Test
+    public void shouldHandImmediateActionToQueue() {
+        final Handler handler = mock(Handler.class);
+        final QueueWorker.ActionQueue queue = mock(QueueWorker.ActionQueue.class);
+
+        new QueueWorker(handler, queue).schedule(mock(Action0.class));
+
+        verify(queue).enqueue(Matchers.any(ScheduledAction.class));
+        verify(handler, never()).postDelayed(Matchers.any(Runnable.class), Matchers.anyLong());
+    }
+
+    @Test
+    public void shouldHandDelayedActionToQueueOnceDue() {
+        final Handler handler = mock(Handler.class);
+        final QueueWorker.ActionQueue queue = mock(QueueWorker.ActionQueue.class);
+
+        new QueueWorker(handler, queue).schedule(mock(Action0.class), 1, TimeUnit.SECONDS);
+
+        ArgumentCaptor<Runnable> delayed = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(delayed.capture(), eq(1000L));
+        verify(queue, never()).enqueue(Matchers.any(ScheduledAction.class));
+
+        delayed.getValue().run();
+        verify(queue).enqueue(Matchers.any(ScheduledAction.class));
+    }
+
+    @Test
+    public void shouldRemoveDelayedActionWhenWorkerUnsubscribed() {
+        final Handler handler = mock(Handler.class);
+        final QueueWorker.ActionQueue queue = mock(QueueWorker.ActionQueue.class);
+
+        QueueWorker inner = new QueueWorker(handler, queue);
+        Subscription subscription = inner.schedule(mock(Action0.class), 1, TimeUnit.SECONDS);
+        ArgumentCaptor<Runnable> delayed = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(delayed.capture(), eq(1000L));
+
+        inner.unsubscribe();
+        verify(handler).removeCallbacks(delayed.getValue());
+        assertTrue(subscription.isUnsubscribed());
+
+        inner.schedule(mock(Action0.class));
+        verify(queue, never()).enqueue(Matchers.any(ScheduledAction.class));
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler.Worker;
+import rx.Subscription;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SchedulerMetricsTest {
+
+    @Test
+    public void shouldRecordDurationsIntoExponentialBuckets() {
+        SchedulerMetrics.Histogram histogram = new SchedulerMetrics().getRunTime();
+        histogram.record(999);
+        histogram.record(1000);
+        histogram.record(3999);
+        histogram.record(4000);
+        histogram.record(TimeUnit.HOURS.toNanos(1));
+
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(1));
+        assertEquals(1, histogram.getCount(2));
+        assertEquals(1, histogram.getCount(3));
+        assertEquals(1, histogram.getCount(histogram.getBucketCount() - 1));
+        assertEquals(5, histogram.getTotalCount());
+        assertEquals(4, histogram.getUpperBoundMicros(2));
+        assertEquals(Long.MAX_VALUE, histogram.getUpperBoundMicros(histogram.getBucketCount() - 1));
+    }
+
+    @Test
+    public void shouldCountScheduledExecutedAndCancelledActions() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+        SchedulerMetrics metrics = new SchedulerMetrics();
+
+        Worker inner = new HandlerThreadScheduler(handler, false, metrics).createWorker();
+        inner.schedule(action);
+        inner.schedule(action).unsubscribe();
+        inner.schedule(action, 1, TimeUnit.SECONDS);
+        inner.schedule(action, 2, TimeUnit.SECONDS);
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(4)).postAtTime(runnable.capture(), Matchers.any(), Matchers.anyLong());
+        runnable.getValue().run();
+        inner.unsubscribe();
+
+        assertEquals(4, metrics.getScheduledCount());
+        assertEquals(1, metrics.getExecutedCount());
+        assertEquals(3, metrics.getCancelledCount());
+        assertEquals(1, metrics.getQueueLatency().getTotalCount());
+        assertEquals(1, metrics.getRunTime().getTotalCount());
+    }
+
+    @Test
+    public void shouldCountPeriodicActionUnsubscribedWhileRunningAsExecutedOnly() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+        SchedulerMetrics metrics = new SchedulerMetrics();
+
+        Worker inner = new HandlerThreadScheduler(handler, false, metrics).createWorker();
+        final Subscription[] periodic = new Subscription[1];
+        periodic[0] = inner.schedulePeriodically(new Action0() {
+            @Override
+            public void call() {
+                periodic[0].unsubscribe();
+            }
+        }, 0, 1, TimeUnit.SECONDS);
+        inner.schedule(action, 1, TimeUnit.SECONDS);
+
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(2)).postAtTime(runnable.capture(), Matchers.any(), Matchers.anyLong());
+        runnable.getAllValues().get(0).run();
+        runnable.getAllValues().get(1).run();
+
+        verify(handler, times(2)).postAtTime(Matchers.any(Runnable.class), Matchers.any(), Matchers.anyLong());
+        verify(action).call();
+        assertEquals(2, metrics.getScheduledCount());
+        assertEquals(2, metrics.getExecutedCount());
+        assertEquals(0, metrics.getCancelledCount());
+    }
+
+    @Test
+    public void shouldCountQueuedActionsOfUnsubscribedBatchedWorkerAsCancelled() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+        SchedulerMetrics metrics = new SchedulerMetrics();
+
+        Worker inner = new HandlerThreadScheduler(handler, true, metrics).createWorker();
+        inner.schedule(action);
+        inner.schedule(action);
+        inner.unsubscribe();
+
+        assertEquals(2, metrics.getScheduledCount());
+        assertEquals(0, metrics.getExecutedCount());
+        assertEquals(2, metrics.getCancelledCount());
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.schedulers;
+
+import android.os.Handler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler.Worker;
+import rx.Subscription;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TimeSlicedSchedulerTest {
+
+    @Test
+    public void shouldRunQueuedActionsOfAllWorkersInOneSliceWithinBudget() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 first = mock(Action0.class);
+        @SuppressWarnings("unchecked")
+        final Action0 second = mock(Action0.class);
+
+        TimeSlicedScheduler scheduler = new TimeSlicedScheduler(handler, 4, TimeUnit.MILLISECONDS);
+        scheduler.createWorker().schedule(first);
+        scheduler.createWorker().schedule(second);
+
+        ArgumentCaptor<Runnable> slice = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).post(slice.capture());
+        verify(first, never()).call();
+
+        slice.getValue().run();
+        InOrder inOrder = inOrder(first, second);
+        inOrder.verify(first).call();
+        inOrder.verify(second).call();
+        assertEquals(1, scheduler.getSliceCount());
+        assertEquals(0, scheduler.getExhaustedSliceCount());
+    }
+
+    @Test
+    public void shouldContinueInNextSliceWhenBudgetIsSpent() {
+        final Handler handler = mock(Handler.class);
+        final TestTimeSlicedScheduler scheduler = new TestTimeSlicedScheduler(handler, 4, TimeUnit.MILLISECONDS);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+        final Action0 slowAction = new Action0() {
+            @Override
+            public void call() {
+                scheduler.nanos += TimeUnit.MILLISECONDS.toNanos(2);
+                action.call();
+            }
+        };
+
+        Worker inner = scheduler.createWorker();
+        for (int i = 0; i < 5; i++) {
+            inner.schedule(slowAction);
+        }
+
+        ArgumentCaptor<Runnable> slice = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(slice.capture());
+
+        // two actions fit into the budget, then the slice posts itself again
+        slice.getValue().run();
+        verify(action, times(2)).call();
+        verify(handler, times(2)).post(slice.getValue());
+
+        slice.getValue().run();
+        verify(action, times(4)).call();
+        verify(handler, times(3)).post(slice.getValue());
+
+        slice.getValue().run();
+        verify(action, times(5)).call();
+        verify(handler, times(3)).post(slice.getValue());
+
+        assertEquals(3, scheduler.getSliceCount());
+        assertEquals(2, scheduler.getExhaustedSliceCount());
+    }
+
+    @Test
+    public void shouldNotRunUnsubscribedAction() {
+        final Handler handler = mock(Handler.class);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+
+        TimeSlicedScheduler scheduler = new TimeSlicedScheduler(handler, 4, TimeUnit.MILLISECONDS);
+        Subscription subscription = scheduler.createWorker().schedule(action);
+        subscription.unsubscribe();
+
+        ArgumentCaptor<Runnable> slice = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(slice.capture());
+        slice.getValue().run();
+        verify(action, never()).call();
+    }
+
+    @Test
+    public void shouldMeasureBudgetBelowOneMillisecond() {
+        final Handler handler = mock(Handler.class);
+        final TestTimeSlicedScheduler scheduler = new TestTimeSlicedScheduler(handler, 500, TimeUnit.MICROSECONDS);
+        @SuppressWarnings("unchecked")
+        final Action0 action = mock(Action0.class);
+        final Action0 slowAction = new Action0() {
+            @Override
+            public void call() {
+                scheduler.nanos += TimeUnit.MICROSECONDS.toNanos(300);
+                action.call();
+            }
+        };
+
+        Worker inner = scheduler.createWorker();
+        for (int i = 0; i < 3; i++) {
+            inner.schedule(slowAction);
+        }
+
+        ArgumentCaptor<Runnable> slice = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(slice.capture());
+        slice.getValue().run();
+        verify(action, times(2)).call();
+        assertEquals(1, scheduler.getExhaustedSliceCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectEmptyBudget() {
+        new TimeSlicedScheduler(mock(Handler.class), 0, TimeUnit.NANOSECONDS);
+    }
+
+    private static class TestTimeSlicedScheduler extends TimeSlicedScheduler {
+
+        volatile long nanos;
+
+        TestTimeSlicedScheduler(Handler handler, long budget, TimeUnit unit) {
+            super(handler, budget, unit);
+        }
+
+        @Override
+        long nanoTime() {
+            return nanos;
+        }
+    }
+}
@@ -20,11 +20,13 @@ import java.util.concurrent.CountDownLatch;
 
 import rx.Observer;
 import rx.Subscription;
+import rx.android.ShadowTokenHandler;
 import rx.android.TestUtil;
+import rx.android.schedulers.AndroidSchedulers;
 import rx.subjects.PublishSubject;
 
 @RunWith(RobolectricTestRunner.class)
-@Config(manifest = Config.NONE)
+@Config(manifest = Config.NONE, shadows = ShadowTokenHandler.class)
 public class BindViewTest {
 
     private Activity activity;
@@ -56,6 +58,19 @@ public class BindViewTest {
         verify(observer).onCompleted();
     }
 
+    @Test
+    public void viewIsNotifiedInPlaceWithImmediateScheduler() {
+        ViewObservable.bindView(target, subject, AndroidSchedulers.mainThreadImmediate()).subscribe(observer);
+        Robolectric.pauseMainLooper();
+
+        subject.onNext("hello");
+        subject.onCompleted();
+
+        verify(observer).onNext("hello");
+        verify(observer).onCompleted();
+        Robolectric.unPauseMainLooper();
+    }
+
     @Test
     public void attachedViewIsNotified() {
         ViewObservable.bindView(target, subject).subscribe(observer);
@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class OperatorConflatePerFrameTest {
+
+    @Test
+    public void shouldDeliverOnlyLatestValuePerFrame() {
+        // each triggerActions() of the test scheduler stands for one frame
+        final TestScheduler frame = new TestScheduler();
+        final FrameConflationStats stats = new FrameConflationStats();
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        source.lift(new OperatorConflatePerFrame<Integer>(frame, stats)).subscribe(subscriber);
+
+        source.onNext(1);
+        source.onNext(2);
+        source.onNext(3);
+        subscriber.assertReceivedOnNext(Collections.<Integer>emptyList());
+
+        frame.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList(3));
+
+        source.onNext(4);
+        frame.triggerActions();
+        frame.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList(3, 4));
+        assertEquals(2, stats.getDeliveredCount());
+        assertEquals(2, stats.getSkippedCount());
+    }
+
+    @Test
+    public void shouldCompleteAfterPendingValue() {
+        final TestScheduler frame = new TestScheduler();
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        source.lift(new OperatorConflatePerFrame<Integer>(frame, null)).subscribe(subscriber);
+
+        source.onNext(1);
+        source.onNext(2);
+        source.onCompleted();
+        assertEquals(0, subscriber.getOnCompletedEvents().size());
+
+        frame.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList(2));
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+    }
+
+    @Test
+    public void shouldDeliverErrorInFrame() {
+        final TestScheduler frame = new TestScheduler();
+        final RuntimeException error = new RuntimeException();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        Observable.<Integer>error(error).lift(new OperatorConflatePerFrame<Integer>(frame, null)).subscribe(subscriber);
+        assertEquals(0, subscriber.getOnErrorEvents().size());
+
+        frame.triggerActions();
+        assertEquals(Arrays.asList(error), subscriber.getOnErrorEvents());
+    }
+
+    @Test
+    public void shouldNotDeliverPendingValueAfterUnsubscribe() {
+        final TestScheduler frame = new TestScheduler();
+        final FrameConflationStats stats = new FrameConflationStats();
+        final PublishSubject<Integer> source = PublishSubject.create();
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        final Subscription subscription = source.lift(new OperatorConflatePerFrame<Integer>(frame, stats)).subscribe(subscriber);
+
+        source.onNext(1);
+        subscription.unsubscribe();
+        frame.triggerActions();
+
+        subscriber.assertReceivedOnNext(Collections.<Integer>emptyList());
+        assertEquals(0, stats.getDeliveredCount());
+        assertFalse(source.hasObservers());
+    }
+}
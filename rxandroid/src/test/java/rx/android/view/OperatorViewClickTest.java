@@ -21,12 +21,17 @@ import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowView;
 
 import rx.Observable;
 import rx.Observer;
 import rx.Subscription;
+import rx.android.TestUtil;
+import rx.functions.Action1;
 import rx.observers.TestObserver;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -129,4 +134,54 @@ public class OperatorViewClickTest {
         inOrder1.verify(observer1, never()).onCompleted();
         inOrder2.verify(observer2, never()).onCompleted();
     }
+
+    @Test
+    public void shouldKeepDispatchingClickWhenSubscriberUnsubscribesFromIt() {
+        final View view = new View(Robolectric.buildActivity(Activity.class).create().get());
+        final Observable<OnClickEvent> observable = ViewObservable.clicks(view, false);
+        final Subscription[] first = new Subscription[1];
+        first[0] = observable.subscribe(new Action1<OnClickEvent>() {
+            @Override
+            public void call(OnClickEvent event) {
+                first[0].unsubscribe();
+            }
+        });
+        final int[] second = new int[1];
+        observable.subscribe(new Action1<OnClickEvent>() {
+            @Override
+            public void call(OnClickEvent event) {
+                second[0]++;
+            }
+        });
+
+        view.performClick();
+        view.performClick();
+        assertTrue(first[0].isUnsubscribed());
+        assertEquals(2, second[0]);
+    }
+
+    @Test
+    public void shouldAllocateOnlyEventsWhenDispatchingClick() {
+        final View view = new View(Robolectric.buildActivity(Activity.class).create().get());
+        final Observable<OnClickEvent> observable = ViewObservable.clicks(view, false);
+        final Action1<OnClickEvent> ignore = new Action1<OnClickEvent>() {
+            @Override
+            public void call(OnClickEvent event) {
+            }
+        };
+        observable.subscribe(ignore);
+        observable.subscribe(ignore);
+
+        // call the listener directly, performClick allocates on its own
+        final View.OnClickListener listener = ((ShadowView) Robolectric.shadowOf_(view)).getOnClickListener();
+        final long allocated = TestUtil.allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                listener.onClick(view);
+            }
+        });
+
+        // an event object with a single field for each of the two subscribers
+        assertTrue("allocated " + allocated + " bytes per click", allocated <= 2 * 24);
+    }
 }
@@ -0,0 +1,85 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rx.android.widget;
+
+import android.app.Activity;
+import android.widget.AbsListView;
+import android.widget.ListView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowAbsListView;
+
+import java.util.Arrays;
+
+import rx.Subscription;
+import rx.android.TestUtil;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class OperatorListViewScrollTest {
+
+    private static ListView createListView() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        return new ListView(activity);
+    }
+
+    private static AbsListView.OnScrollListener getOnScrollListener(AbsListView listView) {
+        return ((ShadowAbsListView) Robolectric.shadowOf_(listView)).getOnScrollListener();
+    }
+
+    @Test
+    public void shouldEmitScrollEventsWithLastScrollState() {
+        final ListView listView = createListView();
+        final TestSubscriber<OnListViewScrollEvent> subscriber = new TestSubscriber<OnListViewScrollEvent>();
+        final Subscription subscription = WidgetObservable.listScrollEvents(listView).subscribe(subscriber);
+
+        final AbsListView.OnScrollListener listener = getOnScrollListener(listView);
+        listener.onScroll(listView, 0, 5, 20);
+        listener.onScrollStateChanged(listView, AbsListView.OnScrollListener.SCROLL_STATE_FLING);
+        listener.onScroll(listView, 3, 5, 20);
+        subscription.unsubscribe();
+        listener.onScroll(listView, 6, 5, 20);
+
+        subscriber.assertReceivedOnNext(Arrays.asList(
+                OnListViewScrollEvent.create(listView, AbsListView.OnScrollListener.SCROLL_STATE_IDLE, 0, 5, 20),
+                OnListViewScrollEvent.create(listView, AbsListView.OnScrollListener.SCROLL_STATE_FLING, 3, 5, 20)));
+    }
+
+    @Test
+    public void shouldAllocateOnlyEventPerScroll() {
+        final ListView listView = createListView();
+        WidgetObservable.listScrollEvents(listView).subscribe(new Action1<OnListViewScrollEvent>() {
+            @Override
+            public void call(OnListViewScrollEvent event) {
+            }
+        });
+
+        final AbsListView.OnScrollListener listener = getOnScrollListener(listView);
+        final long allocated = TestUtil.allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                listener.onScroll(listView, 3, 5, 20);
+            }
+        });
+
+        // an event object with a reference and four ints
+        assertTrue("allocated " + allocated + " bytes per scroll event", allocated <= 32);
+    }
+}
@@ -14,7 +14,10 @@
 package rx.android.widget;
 
 import android.app.Activity;
+import android.text.Editable;
+import android.text.SpannableString;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.widget.EditText;
 import android.widget.TextView;
 import org.junit.Test;
@@ -23,11 +26,17 @@ import org.mockito.ArgumentMatcher;
 import org.mockito.InOrder;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowTextView;
 import rx.Observable;
 import rx.Observer;
 import rx.Subscription;
+import rx.android.TestUtil;
+import rx.functions.Action1;
 import rx.observers.TestObserver;
 
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -216,5 +225,37 @@ public class OperatorTextViewInputTest {
         input.setText("1");
         inOrder.verify(observer, times(1)).onNext(mkMockedEvent(input, "1"));
     }
-}
 
+    @Test
+    public void shouldAllocateOnlyEventAndCopyOfTextPerChange() {
+        final EditText input = mkEditText("initial");
+        WidgetObservable.text(input, false).subscribe(new Action1<OnTextChangeEvent>() {
+            @Override
+            public void call(OnTextChangeEvent event) {
+            }
+        });
+
+        // call the watcher directly, changing the text allocates on its own
+        final List<TextWatcher> watchers = ((ShadowTextView) Robolectric.shadowOf_(input)).getWatchers();
+        final TextWatcher watcher = watchers.get(watchers.size() - 1);
+        final Editable editable = input.getEditableText();
+        final long allocated = TestUtil.allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                watcher.afterTextChanged(editable);
+            }
+        });
+
+        // events hold a copy of the text, which is measured as a baseline
+        final CharSequence[] copy = new CharSequence[1];
+        final long copied = TestUtil.allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                copy[0] = new SpannableString(editable);
+            }
+        });
+
+        // an event object with two fields besides the copy
+        assertTrue("allocated " + (allocated - copied) + " bytes per change besides the text", allocated - copied <= 24);
+    }
+}
@@ -0,0 +1,143 @@
+package rx.android.samples;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Measures how long actions wait between being scheduled from a background thread and running
+ * on the main thread, comparing {@link AndroidSchedulers#mainThread()} with
+ * {@link AndroidSchedulers#mainThreadAsync()}.
+ * <p/>
+ * A view that takes several milliseconds to measure keeps requesting layout, so most of the
+ * time a traversal is pending and the view system's sync barrier is in place. Ordinary messages
+ * have to wait for the traversal to finish, asynchronous ones do not.
+ * <p/>
+ * The README lists the results of {@code AsyncHandlerPerf}, which measures the same effect
+ * against the sync barrier of the JVM stand-in {@link android.os.Looper}.
+ */
+public class SchedulerLatencyActivity extends Activity {
+
+    private static final long SLOW_LAYOUT_MILLIS = 8;
+
+    private final LatencyStats syncStats = new LatencyStats();
+    private final LatencyStats asyncStats = new LatencyStats();
+
+    private TextView textView;
+    private Subscription subscription;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setTitle("Scheduler latency");
+        setContentView(R.layout.scheduler_latency_activity);
+
+        textView = (TextView) findViewById(android.R.id.text1);
+        ((ViewGroup) findViewById(R.id.container)).addView(new SlowLayoutView(this));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        final CompositeSubscription subscriptions = new CompositeSubscription();
+        subscriptions.add(measure(AndroidSchedulers.mainThread(), syncStats));
+        subscriptions.add(measure(AndroidSchedulers.mainThreadAsync(), asyncStats));
+        subscriptions.add(Observable.interval(1, TimeUnit.SECONDS, AndroidSchedulers.mainThread())
+                .subscribe(new Action1<Long>() {
+                    @Override
+                    public void call(Long tick) {
+                        textView.setText("mainThread():\n" + syncStats + "\n\nmainThreadAsync():\n" + asyncStats);
+                    }
+                }));
+        subscription = subscriptions;
+    }
+
+    @Override
+    protected void onPause() {
+        subscription.unsubscribe();
+        super.onPause();
+    }
+
+    private static Subscription measure(Scheduler scheduler, final LatencyStats stats) {
+        final Scheduler.Worker worker = scheduler.createWorker();
+        final Subscription ticks = Observable.interval(5, TimeUnit.MILLISECONDS, Schedulers.computation())
+                .subscribe(new Action1<Long>() {
+                    @Override
+                    public void call(Long tick) {
+                        final long postedAt = System.nanoTime();
+                        worker.schedule(new Action0() {
+                            @Override
+                            public void call() {
+                                stats.record(System.nanoTime() - postedAt);
+                            }
+                        });
+                    }
+                });
+        return new CompositeSubscription(ticks, worker);
+    }
+
+    /**
+     * Accumulates post-to-run latencies; only accessed from the main thread.
+     */
+    private static class LatencyStats {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return "no samples";
+            }
+            return String.format("%d samples, avg %.2f ms, max %.2f ms",
+                    count, totalNanos / (double) count / 1e6, maxNanos / 1e6);
+        }
+    }
+
+    /**
+     * Simulates an expensive layout pass and keeps requesting a new one after every draw.
+     */
+    private static class SlowLayoutView extends View {
+
+        SlowLayoutView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            final long end = SystemClock.uptimeMillis() + SLOW_LAYOUT_MILLIS;
+            while (SystemClock.uptimeMillis() < end) {
+                // busy wait
+            }
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onDraw(android.graphics.Canvas canvas) {
+            super.onDraw(canvas);
+            requestLayout();
+        }
+    }
+}